@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+import ReconnectingWebSocket from 'reconnecting-websocket';
+
+/**
+ * The server may send large diagram actions as binary WebSocket messages containing UTF-8 encoded JSON.
+ * Decode them before they are handed to the `onmessage` handler, which expects text.
+ */
+export function decodeBinaryMessages(webSocket: ReconnectingWebSocket): ReconnectingWebSocket {
+    webSocket.binaryType = 'arraybuffer';
+    const decoder = new TextDecoder('utf-8');
+    let handler: ((event: MessageEvent) => void) | null = null;
+    Object.defineProperty(webSocket, 'onmessage', {
+        configurable: true,
+        get: () => handler,
+        set: (newHandler: ((event: MessageEvent) => void) | null) => {
+            handler = newHandler === null ? null : (event: MessageEvent) => {
+                if (event.data instanceof ArrayBuffer) {
+                    newHandler(new MessageEvent(event.type, { data: decoder.decode(event.data) }));
+                } else {
+                    newHandler(event);
+                }
+            };
+        }
+    });
+    return webSocket;
+}
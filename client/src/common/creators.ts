@@ -14,6 +14,7 @@ import ReconnectingWebSocket from 'reconnecting-websocket';
 import { createRandomId, IActionDispatcher, TYPES } from 'sprotty';
 import { listen, MessageConnection } from 'vscode-ws-jsonrpc';
 import createContainer from '../sprotty-config';
+import { decodeBinaryMessages } from './binary-messages';
 import { LanguageDiagramServer } from './language-diagram-server';
 
 
@@ -70,7 +71,7 @@ export function openWebSocketElkGraph(config: LdsConfig) {
         maxRetries: 20,
         debug: false
     };
-    const webSocket = new ReconnectingWebSocket(socketUrl, [], socketOptions);
+    const webSocket = decodeBinaryMessages(new ReconnectingWebSocket(socketUrl, [], socketOptions));
     listen({
         webSocket: webSocket as any as WebSocket,
         onConnection: connection => {
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+import { Action, SModelElementSchema, SModelRootSchema } from "sprotty";
+
+export interface Addition {
+    parentId: string
+    index: number
+    element: SModelElementSchema
+}
+
+/**
+ * Sent by the server instead of an UpdateModelAction if only a small part of the model changed.
+ */
+export class IncrementalUpdateModelAction implements Action {
+    static readonly KIND = 'incrementalUpdateModel';
+    readonly kind = IncrementalUpdateModelAction.KIND;
+
+    constructor(public readonly removed: string[],
+                public readonly updated: SModelElementSchema[],
+                public readonly added: Addition[],
+                public readonly animate?: boolean) {}
+}
+
+/**
+ * Sent to the server if an incremental update could not be applied, the server answers with the full model.
+ */
+export class RequestFullModelAction implements Action {
+    static readonly KIND = 'requestFullModel';
+    readonly kind = RequestFullModelAction.KIND;
+}
+
+/**
+ * Apply the given changes to a copy of the given model.
+ *
+ * @returns the new model, or undefined if the changes do not fit the model.
+ */
+export function applyIncrementalUpdate(root: SModelRootSchema, action: IncrementalUpdateModelAction): SModelRootSchema | undefined {
+    const newRoot: SModelRootSchema = JSON.parse(JSON.stringify(root));
+    const elements = new Map<string, SModelElementSchema>();
+    const parents = new Map<string, SModelElementSchema>();
+    const index = (element: SModelElementSchema) => {
+        elements.set(element.id, element);
+        (element.children || []).forEach(child => {
+            parents.set(child.id, element);
+            index(child);
+        });
+    };
+    index(newRoot);
+
+    for (const id of action.removed) {
+        const parent = parents.get(id);
+        if (parent === undefined || parent.children === undefined) {
+            return undefined;
+        }
+        parent.children = parent.children.filter(child => child.id !== id);
+    }
+    for (const update of action.updated) {
+        const element = elements.get(update.id);
+        if (element === undefined) {
+            return undefined;
+        }
+        // Updates do not contain children, the element's current children are retained
+        const children = element.children;
+        Object.keys(element).forEach(key => delete (element as any)[key]);
+        Object.assign(element, update);
+        element.children = children;
+    }
+    for (const addition of action.added) {
+        const parent = elements.get(addition.parentId);
+        if (parent === undefined) {
+            return undefined;
+        }
+        if (parent.children === undefined) {
+            parent.children = [];
+        }
+        if (addition.index > parent.children.length) {
+            return undefined;
+        }
+        parent.children.splice(addition.index, 0, addition.element);
+        index(addition.element);
+    }
+    return newRoot;
+}
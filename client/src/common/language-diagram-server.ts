@@ -8,7 +8,8 @@
  * SPDX-License-Identifier: EPL-2.0
  *******************************************************************************/
 import { IConnection } from "monaco-languageclient/lib/connection";
-import { DiagramServer, ActionMessage, ActionHandlerRegistry, Action } from "sprotty";
+import { DiagramServer, ActionMessage, ActionHandlerRegistry, Action, UpdateModelAction } from "sprotty";
+import { applyIncrementalUpdate, IncrementalUpdateModelAction, RequestFullModelAction } from "./incremental-update";
 
 const DIAGRAM_ENDPOINT_NOTIFICATION = 'diagram/accept';
 const DID_CLOSE_NOTIFICATION = 'diagram/didClose';
@@ -30,6 +31,15 @@ export class LanguageDiagramServer extends DiagramServer {
 
     listen(connection: IConnection) {
         connection.onNotification(DIAGRAM_ENDPOINT_NOTIFICATION, (message: ActionMessage) => {
+            if (message.action.kind === IncrementalUpdateModelAction.KIND && message.clientId === this.clientId) {
+                const action = message.action as IncrementalUpdateModelAction;
+                const newRoot = applyIncrementalUpdate(this.currentRoot, action);
+                if (newRoot === undefined) {
+                    this.sendMessage({ clientId: this.clientId, action: new RequestFullModelAction() });
+                    return;
+                }
+                message = { clientId: message.clientId, action: new UpdateModelAction(newRoot, action.animate !== false) };
+            }
             this.messageReceived(message)
             const loading = document.getElementById('loading-sprotty');
             if (loading != undefined) {
@@ -92,6 +92,22 @@ function clearErrorMarkers() {
     monaco.editor.setModelMarkers(editorInput.getModel(), "", []);
 }
 
+// Earlier conversion results by their entity tag. The server answers with 304 (Not Modified)
+// instead of sending one of them again.
+const conversionResults = new Map<string, string>();
+const maxConversionResults = 20;
+
+function rememberConversionResult(etag: string | null, result: string) {
+    if (etag === null) {
+        return;
+    }
+    conversionResults.delete(etag);
+    conversionResults.set(etag, result);
+    if (conversionResults.size > maxConversionResults) {
+        conversionResults.delete(conversionResults.keys().next().value);
+    }
+}
+
 function updateModel() {
     if (editorInput.getValue().trim() === "") {
         clearErrorMarkers();
@@ -108,16 +124,29 @@ function updateModel() {
 
     const url = `${location.protocol}//${location.host}/${subPath}conversion`
     const query = `?inFormat=${inFormat}&outFormat=${outFormat}`
+    const headers: Record<string, string> = {
+        'Content-Type': 'text/plain',
+    };
+    if (conversionResults.size > 0) {
+        headers['If-None-Match'] = Array.from(conversionResults.keys()).join(', ');
+    }
     fetch(`${url}${query}`, {
         method: 'POST',
-        headers: {
-            'Content-Type': 'text/plain',
-        },
+        headers,
         body: editorInput.getValue(),
     })
     .then(resp => {   
-        if (resp.ok) {
-            return resp.text();
+        const etag = resp.headers.get('ETag');
+        if (resp.status === 304 && etag !== null && conversionResults.has(etag)) {
+            const result = conversionResults.get(etag)!;
+            rememberConversionResult(etag, result);
+            return result;
+        } else if (resp.ok) {
+            return resp.text()
+                       .then(text => {
+                           rememberConversionResult(etag, text);
+                           return text;
+                       });
         } else {
             // Forward any non-ok response to the 'catch' below
             return resp.text()
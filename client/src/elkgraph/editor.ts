@@ -18,6 +18,7 @@ import { getParameters, setupModelLink } from "../url-parameters";
 import createContainer from '../sprotty-config';
 import { LanguageDiagramServer, ChangeLayoutVersionAction } from './language-diagram-server';
 import { setupDarkMode } from "../common/dark-mode";
+import { decodeBinaryMessages } from "../common/binary-messages";
 import ReconnectingWebSocket from 'reconnecting-websocket';
 import LZString = require('lz-string');
 
@@ -92,7 +93,7 @@ const socketOptions = {
 //  However, I couldn't find an easy way to do so.
 editor.onDidChangeModelContent(() => loading.style.display = 'block');
 
-const webSocket = new ReconnectingWebSocket(socketUrl, [], socketOptions);
+const webSocket = decodeBinaryMessages(new ReconnectingWebSocket(socketUrl, [], socketOptions));
 listen({
     webSocket: webSocket as any as WebSocket,
     onConnection: connection => {
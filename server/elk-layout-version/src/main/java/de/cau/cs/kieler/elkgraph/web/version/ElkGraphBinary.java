@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.data.LayoutOptionData;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of ELK graphs, used to transfer graphs between the server and the isolated
+ * layout versions. Compared to the elkg XMI format, no intermediate text has to be produced or parsed.
+ *
+ * <p>The node hierarchy is written depth-first: each node is followed by its ports and its children.
+ * Nodes and ports are numbered in that order, and edges, which are written after the hierarchy, refer to
+ * their end points and containing node by these numbers. Like the XMI format, only properties that are
+ * known layout options are transferred, as strings. Repeated strings such as option ids are written
+ * once and referenced afterwards.</p>
+ */
+public final class ElkGraphBinary {
+    private static final int MAGIC = 0x454C4B42; // "ELKB"
+    private static final int FORMAT_VERSION = 1;
+
+    private ElkGraphBinary() {
+    }
+
+    public static byte[] toBytes(ElkNode graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        write(graph, bytes);
+        return bytes.toByteArray();
+    }
+
+    public static ElkNode fromBytes(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    public static void write(ElkNode graph, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out instanceof ByteArrayOutputStream ? out : new BufferedOutputStream(out));
+        new Writer(data).graph(graph);
+        data.flush();
+    }
+
+    public static ElkNode read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in instanceof ByteArrayInputStream ? in : new BufferedInputStream(in));
+        return new Reader(data).graph();
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<ElkConnectableShape, Integer> shapeIndices = new IdentityHashMap<>();
+        private final List<ElkEdge> edges = new ArrayList<>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void graph(ElkNode graph) throws IOException {
+            this.out.writeInt(MAGIC);
+            this.varInt(FORMAT_VERSION);
+            this.node(graph);
+            this.varInt(this.edges.size());
+            for (ElkEdge edge : this.edges) {
+                this.edge(edge);
+            }
+        }
+
+        private void node(ElkNode node) throws IOException {
+            this.shapeIndices.put(node, this.shapeIndices.size());
+            this.shape(node);
+            this.varInt(node.getPorts().size());
+            for (ElkPort port : node.getPorts()) {
+                this.shapeIndices.put(port, this.shapeIndices.size());
+                this.shape(port);
+            }
+            this.varInt(node.getChildren().size());
+            for (ElkNode child : node.getChildren()) {
+                this.node(child);
+            }
+            this.edges.addAll(node.getContainedEdges());
+        }
+
+        private void edge(ElkEdge edge) throws IOException {
+            this.varInt(this.shapeIndices.get(edge.getContainingNode()));
+            this.element(edge);
+            this.shapes(edge.getSources());
+            this.shapes(edge.getTargets());
+            List<ElkEdgeSection> sections = edge.getSections();
+            this.varInt(sections.size());
+            for (ElkEdgeSection section : sections) {
+                this.string(section.getIdentifier());
+                this.out.writeDouble(section.getStartX());
+                this.out.writeDouble(section.getStartY());
+                this.out.writeDouble(section.getEndX());
+                this.out.writeDouble(section.getEndY());
+                this.varInt(section.getBendPoints().size());
+                for (ElkBendPoint bendPoint : section.getBendPoints()) {
+                    this.out.writeDouble(bendPoint.getX());
+                    this.out.writeDouble(bendPoint.getY());
+                }
+                this.optionalShape(section.getIncomingShape());
+                this.optionalShape(section.getOutgoingShape());
+            }
+            // Connections between the sections of hyperedges, as indices into the edge's sections
+            for (ElkEdgeSection section : sections) {
+                this.varInt(section.getOutgoingSections().size());
+                for (ElkEdgeSection outgoing : section.getOutgoingSections()) {
+                    this.varInt(sections.indexOf(outgoing));
+                }
+            }
+        }
+
+        private void shapes(List<ElkConnectableShape> shapes) throws IOException {
+            this.varInt(shapes.size());
+            for (ElkConnectableShape shape : shapes) {
+                this.varInt(this.shapeIndices.get(shape));
+            }
+        }
+
+        private void optionalShape(ElkConnectableShape shape) throws IOException {
+            Integer index = shape != null ? this.shapeIndices.get(shape) : null;
+            this.varInt(index != null ? index + 1 : 0);
+        }
+
+        private void shape(ElkShape shape) throws IOException {
+            this.element(shape);
+            this.out.writeDouble(shape.getX());
+            this.out.writeDouble(shape.getY());
+            this.out.writeDouble(shape.getWidth());
+            this.out.writeDouble(shape.getHeight());
+        }
+
+        private void element(ElkGraphElement element) throws IOException {
+            this.string(element.getIdentifier());
+            this.properties(element);
+            this.varInt(element.getLabels().size());
+            for (ElkLabel label : element.getLabels()) {
+                this.string(label.getText());
+                this.shape(label);
+            }
+        }
+
+        private void properties(ElkGraphElement element) throws IOException {
+            LayoutMetaDataService metaDataService = LayoutMetaDataService.getInstance();
+            List<Map.Entry<IProperty<?>, Object>> persistable = new ArrayList<>(element.getProperties().size());
+            for (Map.Entry<IProperty<?>, Object> property : element.getProperties()) {
+                // Same restriction as for the XMI format: the receiving side must be able to parse the value
+                LayoutOptionData optionData = metaDataService.getOptionData(property.getKey().getId());
+                if (optionData != null && optionData.canParseValue() && property.getValue() != null) {
+                    persistable.add(property);
+                }
+            }
+            this.varInt(persistable.size());
+            for (Map.Entry<IProperty<?>, Object> property : persistable) {
+                this.internedString(property.getKey().getId());
+                this.internedString(property.getValue().toString());
+            }
+        }
+
+        private void string(String string) throws IOException {
+            if (string == null) {
+                this.varInt(0);
+            } else {
+                this.varInt(1);
+                this.utf8(string);
+            }
+        }
+
+        /**
+         * 0 denotes {@code null}, 1 a new string that is added to the string table, and any larger value
+         * a reference to an entry of the string table.
+         */
+        private void internedString(String string) throws IOException {
+            Integer index = this.strings.get(string);
+            if (index != null) {
+                this.varInt(index + 2);
+            } else {
+                this.strings.put(string, this.strings.size());
+                this.varInt(1);
+                this.utf8(string);
+            }
+        }
+
+        private void utf8(String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            this.varInt(bytes.length);
+            this.out.write(bytes);
+        }
+
+        private void varInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                this.out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.out.writeByte(value);
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<ElkConnectableShape> shapes = new ArrayList<>();
+        private final LayoutMetaDataService metaDataService = LayoutMetaDataService.getInstance();
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        private ElkNode graph() throws IOException {
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a binary ELK graph.");
+            }
+            int formatVersion = this.varInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported binary ELK graph format version: " + formatVersion + ".");
+            }
+            ElkNode graph = ElkGraphUtil.createGraph();
+            this.node(graph);
+            int edgeCount = this.varInt();
+            for (int i = 0; i < edgeCount; i++) {
+                this.edge();
+            }
+            return graph;
+        }
+
+        private void node(ElkNode node) throws IOException {
+            this.shapes.add(node);
+            this.shape(node);
+            int portCount = this.varInt();
+            for (int i = 0; i < portCount; i++) {
+                ElkPort port = ElkGraphUtil.createPort(node);
+                this.shapes.add(port);
+                this.shape(port);
+            }
+            int childCount = this.varInt();
+            for (int i = 0; i < childCount; i++) {
+                this.node(ElkGraphUtil.createNode(node));
+            }
+        }
+
+        private void edge() throws IOException {
+            ElkEdge edge = ElkGraphUtil.createEdge((ElkNode) this.shapes.get(this.varInt()));
+            this.element(edge);
+            int sourceCount = this.varInt();
+            for (int i = 0; i < sourceCount; i++) {
+                edge.getSources().add(this.shapes.get(this.varInt()));
+            }
+            int targetCount = this.varInt();
+            for (int i = 0; i < targetCount; i++) {
+                edge.getTargets().add(this.shapes.get(this.varInt()));
+            }
+            int sectionCount = this.varInt();
+            for (int i = 0; i < sectionCount; i++) {
+                ElkEdgeSection section = ElkGraphUtil.createEdgeSection(edge);
+                section.setIdentifier(this.string());
+                section.setStartLocation(this.in.readDouble(), this.in.readDouble());
+                section.setEndLocation(this.in.readDouble(), this.in.readDouble());
+                int bendPointCount = this.varInt();
+                for (int j = 0; j < bendPointCount; j++) {
+                    ElkGraphUtil.createBendPoint(section, this.in.readDouble(), this.in.readDouble());
+                }
+                section.setIncomingShape(this.optionalShape());
+                section.setOutgoingShape(this.optionalShape());
+            }
+            for (int i = 0; i < sectionCount; i++) {
+                ElkEdgeSection section = edge.getSections().get(i);
+                int outgoingCount = this.varInt();
+                for (int j = 0; j < outgoingCount; j++) {
+                    section.getOutgoingSections().add(edge.getSections().get(this.varInt()));
+                }
+            }
+        }
+
+        private ElkConnectableShape optionalShape() throws IOException {
+            int index = this.varInt();
+            return index > 0 ? this.shapes.get(index - 1) : null;
+        }
+
+        private void shape(ElkShape shape) throws IOException {
+            this.element(shape);
+            shape.setLocation(this.in.readDouble(), this.in.readDouble());
+            shape.setDimensions(this.in.readDouble(), this.in.readDouble());
+        }
+
+        private void element(ElkGraphElement element) throws IOException {
+            element.setIdentifier(this.string());
+            this.properties(element);
+            int labelCount = this.varInt();
+            for (int i = 0; i < labelCount; i++) {
+                ElkLabel label = ElkGraphUtil.createLabel(element);
+                label.setText(this.string());
+                this.shape(label);
+            }
+        }
+
+        private void properties(ElkGraphElement element) throws IOException {
+            int propertyCount = this.varInt();
+            for (int i = 0; i < propertyCount; i++) {
+                String key = this.internedString();
+                String value = this.internedString();
+                // Options unknown to this ELK version are dropped, as they would be when loading XMI
+                LayoutOptionData optionData = this.metaDataService.getOptionData(key);
+                if (optionData != null) {
+                    Object parsed = optionData.parseValue(value);
+                    if (parsed != null) {
+                        element.setProperty(optionData, parsed);
+                    }
+                }
+            }
+        }
+
+        private String string() throws IOException {
+            return this.varInt() == 0 ? null : this.utf8();
+        }
+
+        private String internedString() throws IOException {
+            int tag = this.varInt();
+            if (tag == 0) {
+                return null;
+            } else if (tag == 1) {
+                String string = this.utf8();
+                this.strings.add(string);
+                return string;
+            } else {
+                return this.strings.get(tag - 2);
+            }
+        }
+
+        private String utf8() throws IOException {
+            byte[] bytes = new byte[this.varInt()];
+            this.in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int varInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = this.in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable-length integer.");
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import org.eclipse.elk.core.math.KVector;
+import org.eclipse.elk.core.math.KVectorChain;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flat representation of the results of a layout: positions and sizes of all shapes, edge sections with
+ * their bend points, and junction points. The elements are visited in the same order as by
+ * {@link ElkGraphBinary}, hence the geometry computed for a decoded graph can be applied to the graph
+ * that has been encoded, without transferring the graph itself back.
+ *
+ * <p>Shapes contribute their x, y, width and height, followed by the geometry of their labels. Edges
+ * contribute their labels, the number of sections and for each section its start and end point, its
+ * incoming and outgoing shape, the number of bend points and the bend points, and the incoming and outgoing
+ * sections, each preceded by their number. Shapes are referenced by the position of the node or port in
+ * the order of visiting, or -1 if there is none, and sections by their position in the edge's sections.
+ * Links to sections of other edges are not transferred. Finally, the number of junction points and the
+ * junction points are appended.</p>
+ */
+public final class ElkGraphGeometry {
+
+    private ElkGraphGeometry() {
+    }
+
+    public static double[] extract(ElkNode graph) {
+        Extractor extractor = new Extractor();
+        List<ElkEdge> edges = new ArrayList<>();
+        extractor.node(graph, edges);
+        for (ElkEdge edge : edges) {
+            extractor.edge(edge);
+        }
+        return extractor.trim();
+    }
+
+    /**
+     * Apply the geometry extracted from a laid out copy of the given graph. Existing edge sections are
+     * replaced. The graph is only changed once the whole geometry has been found to match it.
+     *
+     * @throws IllegalArgumentException if the geometry does not match the structure of the graph.
+     */
+    public static void apply(double[] geometry, ElkNode graph) {
+        new Applier(geometry, false).graph(graph);
+        new Applier(geometry, true).graph(graph);
+    }
+
+    private static final class Extractor {
+        private final Map<ElkConnectableShape, Integer> shapeIndices = new IdentityHashMap<>();
+        private double[] values = new double[1024];
+        private int size = 0;
+
+        private void node(ElkNode node, List<ElkEdge> edges) {
+            this.shapeIndices.put(node, this.shapeIndices.size());
+            this.shape(node);
+            for (ElkPort port : node.getPorts()) {
+                this.shapeIndices.put(port, this.shapeIndices.size());
+                this.shape(port);
+            }
+            for (ElkNode child : node.getChildren()) {
+                this.node(child, edges);
+            }
+            edges.addAll(node.getContainedEdges());
+        }
+
+        private void edge(ElkEdge edge) {
+            this.labels(edge);
+            this.add(edge.getSections().size());
+            for (ElkEdgeSection section : edge.getSections()) {
+                this.add(section.getStartX(), section.getStartY());
+                this.add(section.getEndX(), section.getEndY());
+                this.add(this.shapeIndex(section.getIncomingShape()), this.shapeIndex(section.getOutgoingShape()));
+                this.add(section.getBendPoints().size());
+                for (ElkBendPoint bendPoint : section.getBendPoints()) {
+                    this.add(bendPoint.getX(), bendPoint.getY());
+                }
+                this.sections(edge, section.getIncomingSections());
+                this.sections(edge, section.getOutgoingSections());
+            }
+            KVectorChain junctionPoints = edge.hasProperty(CoreOptions.JUNCTION_POINTS)
+                    ? edge.getProperty(CoreOptions.JUNCTION_POINTS) : null;
+            if (junctionPoints == null) {
+                this.add(0);
+            } else {
+                this.add(junctionPoints.size());
+                for (KVector point : junctionPoints) {
+                    this.add(point.x, point.y);
+                }
+            }
+        }
+
+        private int shapeIndex(ElkConnectableShape shape) {
+            return shape == null ? -1 : this.shapeIndices.getOrDefault(shape, -1);
+        }
+
+        private void sections(ElkEdge edge, List<ElkEdgeSection> sections) {
+            int count = 0;
+            for (ElkEdgeSection section : sections) {
+                if (section.getParent() == edge) {
+                    count++;
+                }
+            }
+            this.add(count);
+            for (ElkEdgeSection section : sections) {
+                if (section.getParent() == edge) {
+                    this.add(edge.getSections().indexOf(section));
+                }
+            }
+        }
+
+        private void shape(ElkShape shape) {
+            this.add(shape.getX(), shape.getY());
+            this.add(shape.getWidth(), shape.getHeight());
+            this.labels(shape);
+        }
+
+        private void labels(ElkGraphElement element) {
+            for (ElkLabel label : element.getLabels()) {
+                this.shape(label);
+            }
+        }
+
+        private void add(double value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, 2 * this.size);
+            }
+            this.values[this.size++] = value;
+        }
+
+        private void add(double x, double y) {
+            this.add(x);
+            this.add(y);
+        }
+
+        private double[] trim() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    /**
+     * Walks the graph along the geometry. Unless it applies the geometry, nothing is changed, which allows to
+     * validate the geometry before the graph is touched.
+     */
+    private static final class Applier {
+        private final double[] values;
+        private final boolean apply;
+        private final List<ElkConnectableShape> shapes = new ArrayList<>();
+        private int index = 0;
+
+        private Applier(double[] values, boolean apply) {
+            this.values = values;
+            this.apply = apply;
+        }
+
+        private void graph(ElkNode graph) {
+            List<ElkEdge> edges = new ArrayList<>();
+            this.node(graph, edges);
+            for (ElkEdge edge : edges) {
+                this.edge(edge);
+            }
+            if (this.index != this.values.length) {
+                throw new IllegalArgumentException("Geometry does not match the graph's structure.");
+            }
+        }
+
+        private void node(ElkNode node, List<ElkEdge> edges) {
+            this.shapes.add(node);
+            this.shape(node);
+            for (ElkPort port : node.getPorts()) {
+                this.shapes.add(port);
+                this.shape(port);
+            }
+            for (ElkNode child : node.getChildren()) {
+                this.node(child, edges);
+            }
+            edges.addAll(node.getContainedEdges());
+        }
+
+        private void edge(ElkEdge edge) {
+            this.labels(edge);
+            if (this.apply) {
+                edge.getSections().clear();
+            }
+            int sectionCount = this.count();
+            List<ElkEdgeSection> sections = new ArrayList<>(sectionCount);
+            int[][] incomingSections = new int[sectionCount][];
+            int[][] outgoingSections = new int[sectionCount][];
+            for (int i = 0; i < sectionCount; i++) {
+                double startX = this.next();
+                double startY = this.next();
+                double endX = this.next();
+                double endY = this.next();
+                ElkConnectableShape incomingShape = this.connectableShape();
+                ElkConnectableShape outgoingShape = this.connectableShape();
+                ElkEdgeSection section = null;
+                if (this.apply) {
+                    section = ElkGraphUtil.createEdgeSection(edge);
+                    section.setStartLocation(startX, startY);
+                    section.setEndLocation(endX, endY);
+                    section.setIncomingShape(incomingShape);
+                    section.setOutgoingShape(outgoingShape);
+                    sections.add(section);
+                }
+                int bendPointCount = this.count();
+                for (int j = 0; j < bendPointCount; j++) {
+                    double x = this.next();
+                    double y = this.next();
+                    if (this.apply) {
+                        ElkGraphUtil.createBendPoint(section, x, y);
+                    }
+                }
+                incomingSections[i] = this.sections(sectionCount);
+                outgoingSections[i] = this.sections(sectionCount);
+            }
+            if (this.apply) {
+                for (int i = 0; i < sectionCount; i++) {
+                    for (int j : incomingSections[i]) {
+                        sections.get(i).getIncomingSections().add(sections.get(j));
+                    }
+                    for (int j : outgoingSections[i]) {
+                        sections.get(i).getOutgoingSections().add(sections.get(j));
+                    }
+                }
+            }
+            int junctionPointCount = this.count();
+            KVectorChain junctionPoints = new KVectorChain();
+            for (int i = 0; i < junctionPointCount; i++) {
+                junctionPoints.add(new KVector(this.next(), this.next()));
+            }
+            if (this.apply) {
+                // Absent and empty junction points are both encoded as none, which clears stale ones
+                edge.setProperty(CoreOptions.JUNCTION_POINTS, junctionPointCount > 0 ? junctionPoints : null);
+            }
+        }
+
+        private void shape(ElkShape shape) {
+            double x = this.next();
+            double y = this.next();
+            double width = this.next();
+            double height = this.next();
+            if (this.apply) {
+                shape.setLocation(x, y);
+                shape.setDimensions(width, height);
+            }
+            this.labels(shape);
+        }
+
+        private void labels(ElkGraphElement element) {
+            for (ElkLabel label : element.getLabels()) {
+                this.shape(label);
+            }
+        }
+
+        private ElkConnectableShape connectableShape() {
+            int shapeIndex = (int) this.next();
+            if (shapeIndex < -1 || shapeIndex >= this.shapes.size()) {
+                throw new IllegalArgumentException("Geometry does not match the graph's structure.");
+            }
+            return shapeIndex < 0 ? null : this.shapes.get(shapeIndex);
+        }
+
+        private int[] sections(int sectionCount) {
+            int[] sections = new int[this.count()];
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = (int) this.next();
+                if (sections[i] < 0 || sections[i] >= sectionCount) {
+                    throw new IllegalArgumentException("Geometry does not match the graph's structure.");
+                }
+            }
+            return sections;
+        }
+
+        private int count() {
+            double count = this.next();
+            // Guards against allocating arrays for counts that cannot be satisfied by the remaining values
+            if (count < 0 || count > this.values.length - this.index) {
+                throw new IllegalArgumentException("Geometry does not match the graph's structure.");
+            }
+            return (int) count;
+        }
+
+        private double next() {
+            if (this.index >= this.values.length) {
+                throw new IllegalArgumentException("Geometry does not match the graph's structure.");
+            }
+            return this.values[this.index++];
+        }
+    }
+}
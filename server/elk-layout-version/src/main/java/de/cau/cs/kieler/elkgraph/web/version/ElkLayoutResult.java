@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+/**
+ * Outcome of laying out a single graph of a batch, see {@link IElkLayoutVersion#layoutGeometries}.
+ * Like {@link IElkLayoutVersion}, this class is shared between the server and all layout versions and
+ * hence must only depend on JDK types.
+ */
+public final class ElkLayoutResult {
+    private final double[] geometry;
+    private final String errorType;
+    private final String errorMessage;
+    private final long durationNanos;
+
+    private ElkLayoutResult(double[] geometry, String errorType, String errorMessage, long durationNanos) {
+        this.geometry = geometry;
+        this.errorType = errorType;
+        this.errorMessage = errorMessage;
+        this.durationNanos = durationNanos;
+    }
+
+    public static ElkLayoutResult success(double[] geometry, long durationNanos) {
+        return new ElkLayoutResult(geometry, null, null, durationNanos);
+    }
+
+    public static ElkLayoutResult failure(Throwable cause, long durationNanos) {
+        return failure(cause.getClass().getName(), cause.getMessage(), durationNanos);
+    }
+
+    public static ElkLayoutResult failure(String errorType, String errorMessage, long durationNanos) {
+        return new ElkLayoutResult(null, errorType, errorMessage, durationNanos);
+    }
+
+    public static ElkLayoutResult canceled() {
+        return new ElkLayoutResult(null, "canceled", "The layout has been canceled.", 0);
+    }
+
+    public boolean isSuccess() {
+        return this.geometry != null;
+    }
+
+    /**
+     * @return the computed geometry as described by {@link ElkGraphGeometry}, or {@code null} if the
+     *         layout failed.
+     */
+    public double[] getGeometry() {
+        return this.geometry;
+    }
+
+    /**
+     * @return the class name of the exception the layout failed with, {@code "canceled"} if the layout has
+     *         been canceled, or {@code null} if the layout succeeded.
+     */
+    public String getErrorType() {
+        return this.errorType;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    /**
+     * @return the time spent inside the layout version, including the decoding of the graph and the
+     *         extraction of its geometry.
+     */
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+}
@@ -16,37 +16,25 @@ import org.eclipse.elk.core.data.LayoutAlgorithmData;
 import org.eclipse.elk.core.data.LayoutMetaDataService;
 import org.eclipse.elk.core.options.CoreOptions;
 import org.eclipse.elk.core.util.BasicProgressMonitor;
-import org.eclipse.elk.core.util.persistence.ElkGraphResourceFactory;
 import org.eclipse.elk.graph.ElkGraphPackage;
 import org.eclipse.elk.graph.ElkNode;
-import org.eclipse.emf.common.util.URI;
-import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.emf.ecore.resource.Resource.Factory.Registry;
-import org.eclipse.emf.ecore.resource.URIConverter;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
-import org.eclipse.xtext.xbase.lib.Exceptions;
-import org.eclipse.xtext.xbase.lib.IterableExtensions;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
 import java.util.ServiceConfigurationError;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ElkLayoutVersion implements IElkLayoutVersion {
     private static final Logger LOG = Logger.getLogger(ElkLayoutVersion.class.getName());
     private final IGraphLayoutEngine layoutEngine = new RecursiveGraphLayoutEngine();
+    private final IGraphLayoutEngine parallelLayoutEngine;
 
     public ElkLayoutVersion() throws NoSuchMethodException, NoSuchFieldException, InvocationTargetException, InstantiationException, IllegalAccessException {
-        Map<String, Object> _extensionToFactoryMap = Registry.INSTANCE.getExtensionToFactoryMap();
-        ElkGraphResourceFactory _elkGraphResourceFactory = new ElkGraphResourceFactory();
-        _extensionToFactoryMap.put("elkg", _elkGraphResourceFactory);
         ElkGraphPackage.eINSTANCE.eClass();
 
         try {
@@ -90,52 +78,74 @@ public class ElkLayoutVersion implements IElkLayoutVersion {
                 }
             });
         }
+        this.parallelLayoutEngine = new ParallelRecursiveGraphLayoutEngine();
     }
 
-    public String layout(String serializedGraph) {
-        return this.deserialize(serializedGraph).map(this::layout).flatMap(this::serialize).orElse(null);
+    public double[] layoutGeometry(byte[] binaryGraph, BooleanSupplier isCanceled) {
+        return this.layoutGeometry(binaryGraph, isCanceled, false);
     }
 
-    protected ElkNode layout(ElkNode elkGraph) {
-        this.layoutEngine.layout(elkGraph, new BasicProgressMonitor());
-        return elkGraph;
+    public double[] layoutGeometry(byte[] binaryGraph, BooleanSupplier isCanceled, boolean parallel) {
+        try {
+            ElkNode graph = this.layout(ElkGraphBinary.fromBytes(binaryGraph), isCanceled, parallel);
+            return isCanceled.getAsBoolean() ? null : ElkGraphGeometry.extract(graph);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Binary graph transfer failed (for concrete layout version).", e);
+            return null;
+        }
     }
 
-    protected Optional<ElkNode> deserialize(String serializedGraph) {
-        ResourceSetImpl rs = new ResourceSetImpl();
-        Resource r = rs.createResource(URI.createURI("dummy.elkg"));
+    public ElkLayoutResult[] layoutGeometries(byte[][] binaryGraphs, BooleanSupplier isCanceled) {
+        return this.layoutGeometries(binaryGraphs, isCanceled, false);
+    }
 
-        try {
-            r.load(new URIConverter.ReadableInputStream(serializedGraph), null);
-            if (!r.getContents().isEmpty()) {
-                return Optional.of((ElkNode) IterableExtensions.head(r.getContents()));
+    public ElkLayoutResult[] layoutGeometries(byte[][] binaryGraphs, BooleanSupplier isCanceled, boolean parallel) {
+        ElkLayoutResult[] results = new ElkLayoutResult[binaryGraphs.length];
+        for (int i = 0; i < binaryGraphs.length; i++) {
+            if (isCanceled.getAsBoolean()) {
+                results[i] = ElkLayoutResult.canceled();
+                continue;
             }
-        } catch (Throwable var8) {
-            if (!(var8 instanceof IOException e)) {
-                throw Exceptions.sneakyThrow(var8);
+            long start = System.nanoTime();
+            try {
+                ElkNode graph = this.layout(ElkGraphBinary.fromBytes(binaryGraphs[i]), isCanceled, parallel);
+                results[i] = isCanceled.getAsBoolean()
+                        ? ElkLayoutResult.canceled()
+                        : ElkLayoutResult.success(ElkGraphGeometry.extract(graph), System.nanoTime() - start);
+            } catch (Exception e) {
+                results[i] = ElkLayoutResult.failure(e, System.nanoTime() - start);
             }
-
-            LOG.log(Level.WARNING, "elkg deserialization failed (for concrete layout version).", e);
         }
+        return results;
+    }
 
-        return Optional.empty();
+    protected ElkNode layout(ElkNode elkGraph, BooleanSupplier isCanceled, boolean parallel) {
+        IGraphLayoutEngine engine = parallel ? this.parallelLayoutEngine : this.layoutEngine;
+        engine.layout(elkGraph, new CancellableProgressMonitor(isCanceled));
+        return elkGraph;
     }
 
-    protected Optional<String> serialize(ElkNode laidOutGraph) {
-        Resource r = laidOutGraph.eResource();
-        StringWriter sw = new StringWriter();
-        URIConverter.WriteableOutputStream os = new URIConverter.WriteableOutputStream(sw, "UTF-8");
+    /**
+     * The server's progress monitor cannot be passed across the class loader boundary since each
+     * layout version comes with its own {@link BasicProgressMonitor}. Instead, the cancellation state
+     * is queried through a {@link BooleanSupplier}, which is a JDK type and thus shared by both sides.
+     */
+    private static class CancellableProgressMonitor extends BasicProgressMonitor {
+        private final BooleanSupplier isCanceled;
 
-        try {
-            r.save(os, null);
-            return Optional.of(sw.toString());
-        } catch (Throwable e) {
-            if (e instanceof IOException) {
-                LOG.log(Level.WARNING, "elkg serialization failed (for concrete layout version).", e);
-                return Optional.empty();
-            } else {
-                throw Exceptions.sneakyThrow(e);
-            }
+        CancellableProgressMonitor(BooleanSupplier isCanceled) {
+            this.isCanceled = isCanceled;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return this.isCanceled.getAsBoolean();
+        }
+
+        @Override
+        protected BasicProgressMonitor doSubTask(float work, int maxHierarchyLevels) {
+            return new CancellableProgressMonitor(this.isCanceled)
+                    .withMaxHierarchyLevels(maxHierarchyLevels > 0 ? maxHierarchyLevels - 1 : maxHierarchyLevels);
         }
     }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Entry point of a layout worker process, which lays out graphs in a JVM of its own such that a
+ * pathological graph can neither exhaust the server's heap nor occupy one of its threads forever.
+ *
+ * <p>The worker communicates over its standard streams. Once ready, it writes {@link #READY}. Afterwards,
+ * each request consists of the length of an {@link ElkGraphBinary} encoded graph followed by the graph.
+ * The response is either {@link #GEOMETRY}, followed by the number of values and the values of the
+ * {@link ElkGraphGeometry}, or {@link #ERROR}, followed by the error type and message. The worker exits
+ * once its standard input is closed.</p>
+ */
+public final class ElkLayoutWorker {
+    private static final Logger LOG = Logger.getLogger(ElkLayoutWorker.class.getName());
+
+    public static final byte READY = 'R';
+    public static final byte GEOMETRY = 'G';
+    public static final byte ERROR = 'E';
+
+    private ElkLayoutWorker() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Anything printed by the layout algorithms must not interfere with the protocol
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+
+        ElkLayoutVersion layouter = new ElkLayoutVersion();
+        out.writeByte(READY);
+        out.flush();
+
+        while (true) {
+            byte[] graph;
+            try {
+                graph = new byte[in.readInt()];
+            } catch (EOFException e) {
+                return;
+            }
+            in.readFully(graph);
+
+            ElkLayoutResult result = layouter.layoutGeometries(new byte[][] { graph }, () -> false)[0];
+            if (result.isSuccess()) {
+                double[] geometry = result.getGeometry();
+                out.writeByte(GEOMETRY);
+                out.writeInt(geometry.length);
+                for (double value : geometry) {
+                    out.writeDouble(value);
+                }
+            } else {
+                LOG.log(Level.FINE, "Layout failed: " + result.getErrorMessage());
+                out.writeByte(ERROR);
+                out.writeUTF(String.valueOf(result.getErrorType()));
+                String message = String.valueOf(result.getErrorMessage());
+                // Modified UTF-8 strings are limited to 64k bytes
+                out.writeUTF(message.length() > 4096 ? message.substring(0, 4096) : message);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Write a request to a worker process.
+     */
+    public static void writeRequest(DataOutputStream out, byte[] graph) throws IOException {
+        out.writeInt(graph.length);
+        out.write(graph);
+        out.flush();
+    }
+
+    /**
+     * Read the response of a worker process.
+     *
+     * @param startNanos the time at which the request has been sent, see {@link System#nanoTime()}.
+     * @return the geometry, or a failed result if the layout failed.
+     * @throws IOException if the worker died or violated the protocol.
+     */
+    public static ElkLayoutResult readResponse(DataInputStream in, long startNanos) throws IOException {
+        byte type = in.readByte();
+        if (type == GEOMETRY) {
+            double[] geometry = new double[in.readInt()];
+            for (int i = 0; i < geometry.length; i++) {
+                geometry[i] = in.readDouble();
+            }
+            return ElkLayoutResult.success(geometry, System.nanoTime() - startNanos);
+        } else if (type == ERROR) {
+            String errorType = in.readUTF();
+            return ElkLayoutResult.failure(errorType, in.readUTF(), System.nanoTime() - startNanos);
+        }
+        throw new IOException("Unexpected response of layout worker: " + type);
+    }
+}
@@ -9,12 +9,51 @@
  *******************************************************************************/
 package de.cau.cs.kieler.elkgraph.web.version;
 
-interface IElkLayoutVersion {
-    
+import java.util.function.BooleanSupplier;
+
+/**
+ * Contract between the server and the layout versions. The server loads this interface and
+ * {@link ElkLayoutResult} through its own class loader and shares them with the class loaders of all layout
+ * versions, which allows to call layout versions directly instead of through reflection. Hence, only JDK
+ * types may appear in the signatures.
+ */
+public interface IElkLayoutVersion {
+
+    /**
+     * Only transfers the computed coordinates back, which the caller applies to the graph it already holds.
+     * This avoids producing and parsing large amounts of text or bytes for the laid out graph.
+     *
+     * @param binaryGraph the graph to be laid out, encoded using {@link ElkGraphBinary}.
+     * @param isCanceled queried by the layout algorithms between their phases. As soon as it yields
+     *            {@code true}, the layout is stopped.
+     * @return the computed geometry as described by {@link ElkGraphGeometry}, or {@code null} if the
+     *            layout failed or has been canceled.
+     */
+    double[] layoutGeometry(byte[] binaryGraph, BooleanSupplier isCanceled);
+
+    /**
+     * @param parallel whether independent subtrees of compound nodes are laid out concurrently, see
+     *            {@link ParallelRecursiveGraphLayoutEngine}. The result is the same either way.
+     * @see #layoutGeometry(byte[], BooleanSupplier)
+     */
+    double[] layoutGeometry(byte[] binaryGraph, BooleanSupplier isCanceled, boolean parallel);
+
+    /**
+     * Lay out many graphs with a single call. A graph that fails to be laid out does not affect the
+     * remaining ones.
+     *
+     * @param binaryGraphs the graphs to be laid out, each encoded using {@link ElkGraphBinary}.
+     * @param isCanceled queried by the layout algorithms between their phases. As soon as it yields
+     *            {@code true}, the current layout is stopped and the remaining graphs are skipped.
+     * @return one result per graph, in the order of the given graphs.
+     */
+    ElkLayoutResult[] layoutGeometries(byte[][] binaryGraphs, BooleanSupplier isCanceled);
+
     /**
-     * @param serializedGraph serialized representation of the graph to be laid out, in elkg XMI format.
-     * @return a serialized representation of the laid out graph, in elkg XMI format.
+     * @param parallel whether independent subtrees of compound nodes are laid out concurrently, see
+     *            {@link ParallelRecursiveGraphLayoutEngine}. The result is the same either way.
+     * @see #layoutGeometries(byte[][], BooleanSupplier)
      */
-    String layout(String serializedGraph);
+    ElkLayoutResult[] layoutGeometries(byte[][] binaryGraphs, BooleanSupplier isCanceled, boolean parallel);
     
 }
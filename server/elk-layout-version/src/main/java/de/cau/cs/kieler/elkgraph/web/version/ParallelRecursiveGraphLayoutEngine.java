@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.core.data.LayoutAlgorithmData;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.options.HierarchyHandling;
+import org.eclipse.elk.core.testing.TestController;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.properties.GraphFeature;
+import org.eclipse.elk.graph.properties.IProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Variant of the {@link RecursiveGraphLayoutEngine} that lays out the subtrees of sibling compound nodes
+ * concurrently. This is possible whenever a node's children are laid out separately, i.e. bottom-up and
+ * independently of each other, before the node itself. Everything else, including the layout of the node
+ * itself and the scaling of its children, is left to the sequential engine, in the same order. Since the
+ * subtrees are disjoint, the result is identical to the one of the sequential engine.
+ *
+ * <p>Subtrees are laid out as tasks of the fork/join pool of the calling thread if it belongs to one, or
+ * of the common pool otherwise. Layouts using a {@link TestController} are not parallelized.</p>
+ */
+public class ParallelRecursiveGraphLayoutEngine extends RecursiveGraphLayoutEngine {
+
+    /** Not known to ELK versions prior to 0.9.0, which do not support top-down layout. */
+    private final IProperty<?> topdownLayout;
+
+    /** Results of subtrees that have been laid out in advance, consumed by the sequential engine. */
+    private final Map<ElkNode, List<ElkEdge>> subtreeResults = new ConcurrentHashMap<>();
+
+    /**
+     * Must only be created once the layout meta data have been registered.
+     */
+    public ParallelRecursiveGraphLayoutEngine() {
+        this.topdownLayout = LayoutMetaDataService.getInstance().getOptionData("org.eclipse.elk.topdownLayout");
+    }
+
+    @Override
+    protected List<ElkEdge> layoutRecursively(ElkNode layoutNode, TestController testController,
+            IElkProgressMonitor progressMonitor) {
+        List<ElkEdge> subtreeResult = this.subtreeResults.remove(layoutNode);
+        if (subtreeResult != null) {
+            return subtreeResult;
+        }
+        if (testController != null || !this.hasIndependentSubtrees(layoutNode, progressMonitor)) {
+            return super.layoutRecursively(layoutNode, testController, progressMonitor);
+        }
+
+        try {
+            this.layoutSubtrees(layoutNode, progressMonitor);
+            return super.layoutRecursively(layoutNode, null, progressMonitor);
+        } finally {
+            // In case the sequential engine did not get to the children
+            for (ElkNode child : layoutNode.getChildren()) {
+                this.subtreeResults.remove(child);
+            }
+        }
+    }
+
+    /**
+     * Lay out the subtrees of all compound children of the given node concurrently and store their results.
+     * Progress is reported to sub-monitors that are created upfront since progress monitors are not
+     * thread-safe.
+     */
+    private void layoutSubtrees(ElkNode layoutNode, IElkProgressMonitor progressMonitor) {
+        List<SubtreeTask> tasks = new ArrayList<>();
+        for (ElkNode child : layoutNode.getChildren()) {
+            if (!child.getChildren().isEmpty()) {
+                tasks.add(new SubtreeTask(child, progressMonitor.subTask(0)));
+            }
+        }
+        // The calling thread takes the first subtree itself
+        for (int i = 1; i < tasks.size(); i++) {
+            tasks.get(i).fork();
+        }
+        tasks.get(0).quietlyInvoke();
+        for (int i = 1; i < tasks.size(); i++) {
+            tasks.get(i).quietlyJoin();
+        }
+        Throwable failure = null;
+        for (SubtreeTask task : tasks) {
+            if (task.isCompletedAbnormally()) {
+                // Report the failure the sequential engine would have run into first
+                if (failure == null) {
+                    failure = task.getException();
+                }
+            } else {
+                this.subtreeResults.put(task.node, task.getRawResult());
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Whether the sequential engine would lay out the children of the given node separately, and at least
+     * two of them have children of their own.
+     */
+    private boolean hasIndependentSubtrees(ElkNode layoutNode, IElkProgressMonitor progressMonitor) {
+        if (progressMonitor.isCanceled() || layoutNode.getChildren().size() < 2
+                || layoutNode.getProperty(CoreOptions.NO_LAYOUT) || this.isTopdown(layoutNode)) {
+            return false;
+        }
+        LayoutAlgorithmData algorithmData = layoutNode.getProperty(CoreOptions.RESOLVED_ALGORITHM);
+        if (algorithmData == null) {
+            return false;
+        }
+        // The sequential engine resolves the inheritance just the same before laying out the children
+        if (layoutNode.getProperty(CoreOptions.HIERARCHY_HANDLING) == HierarchyHandling.INHERIT) {
+            layoutNode.setProperty(CoreOptions.HIERARCHY_HANDLING, layoutNode.getParent() == null
+                    ? HierarchyHandling.SEPARATE_CHILDREN : layoutNode.getParent().getProperty(CoreOptions.HIERARCHY_HANDLING));
+        }
+        if (layoutNode.getProperty(CoreOptions.HIERARCHY_HANDLING) == HierarchyHandling.INCLUDE_CHILDREN
+                && (algorithmData.supportsFeature(GraphFeature.COMPOUND)
+                        || algorithmData.supportsFeature(GraphFeature.CLUSTERS))) {
+            return false;
+        }
+        int subtrees = 0;
+        for (ElkNode child : layoutNode.getChildren()) {
+            if (this.isTopdown(child)) {
+                return false;
+            }
+            if (!child.getChildren().isEmpty()) {
+                subtrees++;
+            }
+        }
+        return subtrees >= 2;
+    }
+
+    private boolean isTopdown(ElkNode node) {
+        return this.topdownLayout != null && Boolean.TRUE.equals(node.getProperty(this.topdownLayout));
+    }
+
+    /**
+     * Lays out the subtree of a single child, which may in turn fork tasks for its own children.
+     */
+    private final class SubtreeTask extends RecursiveTask<List<ElkEdge>> {
+        private final ElkNode node;
+
+        private final IElkProgressMonitor progressMonitor;
+
+        private SubtreeTask(ElkNode node, IElkProgressMonitor progressMonitor) {
+            this.node = node;
+            this.progressMonitor = progressMonitor;
+        }
+
+        @Override
+        protected List<ElkEdge> compute() {
+            return ParallelRecursiveGraphLayoutEngine.this.layoutRecursively(this.node, null, this.progressMonitor);
+        }
+    }
+}
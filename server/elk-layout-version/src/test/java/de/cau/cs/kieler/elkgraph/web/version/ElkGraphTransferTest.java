@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import org.eclipse.elk.core.math.KVector;
+import org.eclipse.elk.core.math.KVectorChain;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.options.Direction;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Round trips through {@link ElkGraphBinary} and {@link ElkGraphGeometry}, the way the server and a layout
+ * version exchange a graph and its layout. Each layout version project runs these tests against its own ELK
+ * release.
+ */
+public class ElkGraphTransferTest {
+
+    @Test
+    public void binaryRoundTripKeepsTheGraph() throws IOException {
+        ElkNode graph = createGraph();
+        byte[] bytes = ElkGraphBinary.toBytes(graph);
+        ElkNode decoded = ElkGraphBinary.fromBytes(bytes);
+
+        assertArrayEquals(bytes, ElkGraphBinary.toBytes(decoded));
+        assertEquals(Direction.DOWN, decoded.getProperty(CoreOptions.DIRECTION));
+        ElkNode n2 = decoded.getChildren().get(1);
+        assertEquals("n2", n2.getIdentifier());
+        assertEquals("port label", n2.getPorts().get(0).getLabels().get(0).getText());
+        ElkEdge crossHierarchy = decoded.getContainedEdges().get(1);
+        assertSame(n2.getChildren().get(0), crossHierarchy.getTargets().get(0));
+    }
+
+    @Test
+    public void geometryRoundTripAppliesTheLayout() throws IOException {
+        ElkNode graph = createGraph();
+        ElkNode laidOut = ElkGraphBinary.fromBytes(ElkGraphBinary.toBytes(graph));
+        layOut(laidOut);
+        double[] geometry = ElkGraphGeometry.extract(laidOut);
+
+        ElkGraphGeometry.apply(geometry, graph);
+
+        assertArrayEquals(geometry, ElkGraphGeometry.extract(graph), 0);
+        ElkNode n1 = graph.getChildren().get(0);
+        ElkPort port = graph.getChildren().get(1).getPorts().get(0);
+        List<ElkEdgeSection> sections = graph.getContainedEdges().get(0).getSections();
+        assertEquals(2, sections.size());
+        assertSame(n1, sections.get(0).getIncomingShape());
+        assertSame(port, sections.get(1).getOutgoingShape());
+        assertSame(sections.get(1), sections.get(0).getOutgoingSections().get(0));
+        assertEquals(2, graph.getContainedEdges().get(0).getProperty(CoreOptions.JUNCTION_POINTS).size());
+    }
+
+    @Test
+    public void geometryWithoutJunctionPointsClearsThem() throws IOException {
+        ElkNode graph = createGraph();
+        ElkNode laidOut = ElkGraphBinary.fromBytes(ElkGraphBinary.toBytes(graph));
+        layOut(graph);
+        layOut(laidOut);
+        laidOut.getContainedEdges().get(0).setProperty(CoreOptions.JUNCTION_POINTS, null);
+
+        ElkGraphGeometry.apply(ElkGraphGeometry.extract(laidOut), graph);
+
+        assertFalse(graph.getContainedEdges().get(0).hasProperty(CoreOptions.JUNCTION_POINTS));
+    }
+
+    @Test
+    public void mismatchingGeometryLeavesTheGraphUnchanged() throws IOException {
+        ElkNode graph = createGraph();
+        ElkNode laidOut = ElkGraphBinary.fromBytes(ElkGraphBinary.toBytes(graph));
+        layOut(laidOut);
+        double[] before = ElkGraphGeometry.extract(graph);
+        double[] geometry = ElkGraphGeometry.extract(laidOut);
+
+        double[] truncated = Arrays.copyOf(geometry, geometry.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> ElkGraphGeometry.apply(truncated, graph));
+        double[] extended = Arrays.copyOf(geometry, geometry.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> ElkGraphGeometry.apply(extended, graph));
+
+        assertArrayEquals(before, ElkGraphGeometry.extract(graph), 0);
+    }
+
+    /**
+     * A graph with labels, ports, a compound node and an edge into it.
+     */
+    private static ElkNode createGraph() {
+        ElkNode graph = ElkGraphUtil.createGraph();
+        graph.setIdentifier("root");
+        graph.setProperty(CoreOptions.DIRECTION, Direction.DOWN);
+        ElkNode n1 = ElkGraphUtil.createNode(graph);
+        n1.setIdentifier("n1");
+        n1.setDimensions(30, 30);
+        ElkGraphUtil.createLabel("n1 label", n1).setDimensions(40, 12);
+        ElkNode n2 = ElkGraphUtil.createNode(graph);
+        n2.setIdentifier("n2");
+        ElkPort port = ElkGraphUtil.createPort(n2);
+        port.setDimensions(5, 5);
+        ElkGraphUtil.createLabel("port label", port);
+        ElkNode child = ElkGraphUtil.createNode(n2);
+        child.setIdentifier("child");
+        ElkEdge edge = ElkGraphUtil.createSimpleEdge(n1, port);
+        ElkGraphUtil.createLabel("edge label", edge).setDimensions(20, 10);
+        ElkGraphUtil.createSimpleEdge(n1, child);
+        return graph;
+    }
+
+    /**
+     * Stands in for a layout algorithm, which the project of the interface does not depend on: every shape
+     * gets distinct coordinates, and the first edge is routed through two linked sections.
+     */
+    private static void layOut(ElkNode graph) {
+        double next = 1;
+        for (EObject element : (Iterable<EObject>) graph::eAllContents) {
+            if (element instanceof ElkShape) {
+                ElkShape shape = (ElkShape) element;
+                shape.setLocation(next++, next++);
+                shape.setDimensions(next++, next++);
+            }
+        }
+        ElkEdge edge = graph.getContainedEdges().get(0);
+        ElkEdgeSection first = ElkGraphUtil.createEdgeSection(edge);
+        first.setStartLocation(10, 20);
+        first.setEndLocation(30, 40);
+        first.setIncomingShape(edge.getSources().get(0));
+        ElkGraphUtil.createBendPoint(first, 20, 30);
+        ElkEdgeSection second = ElkGraphUtil.createEdgeSection(edge);
+        second.setStartLocation(30, 40);
+        second.setEndLocation(50, 60);
+        second.setOutgoingShape(edge.getTargets().get(0));
+        first.getOutgoingSections().add(second);
+        KVectorChain junctionPoints = new KVectorChain();
+        junctionPoints.add(new KVector(30, 40));
+        junctionPoints.add(new KVector(50, 60));
+        edge.setProperty(CoreOptions.JUNCTION_POINTS, junctionPoints);
+    }
+}
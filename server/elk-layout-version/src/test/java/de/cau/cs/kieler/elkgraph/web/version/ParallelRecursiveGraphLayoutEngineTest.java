@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web.version;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.elk.alg.layered.options.LayeredMetaDataProvider;
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.options.HierarchyHandling;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lays out the same graph with the {@link ParallelRecursiveGraphLayoutEngine} and the sequential
+ * {@link RecursiveGraphLayoutEngine} and compares the results, which have to be identical.
+ */
+public class ParallelRecursiveGraphLayoutEngineTest {
+
+    @BeforeClass
+    public static void registerLayered() {
+        LayoutMetaDataService.getInstance().registerLayoutMetaDataProviders(new LayeredMetaDataProvider());
+    }
+
+    @Test
+    public void parallelLayoutEqualsSequentialLayout() throws Exception {
+        ElkNode sequential = createGraph();
+        new RecursiveGraphLayoutEngine().layout(sequential, new BasicProgressMonitor());
+
+        ElkNode parallel = createGraph();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRecursiveGraphLayoutEngine engine = new ParallelRecursiveGraphLayoutEngine();
+            pool.submit(() -> engine.layout(parallel, new BasicProgressMonitor())).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        double[] expected = ElkGraphGeometry.extract(sequential);
+        assertTrue(expected.length > 0);
+        assertArrayEquals(expected, ElkGraphGeometry.extract(parallel), 0);
+    }
+
+    /**
+     * Three compound nodes whose children are laid out separately, two of them with compound children of
+     * their own, and one whose children are included in its layout. Edges cross the hierarchy between two
+     * of the subtrees and within the included one.
+     */
+    private static ElkNode createGraph() {
+        ElkNode graph = ElkGraphUtil.createGraph();
+        graph.setProperty(CoreOptions.ALGORITHM, "org.eclipse.elk.layered");
+        graph.setProperty(CoreOptions.HIERARCHY_HANDLING, HierarchyHandling.SEPARATE_CHILDREN);
+        ElkNode a = createSubtree(graph, "a", 3, 4);
+        ElkNode b = createSubtree(graph, "b", 4, 3);
+        ElkNode c = createSubtree(graph, "c", 3, 3);
+        c.setProperty(CoreOptions.HIERARCHY_HANDLING, HierarchyHandling.INCLUDE_CHILDREN);
+        ElkGraphUtil.createSimpleEdge(a, b);
+        ElkGraphUtil.createSimpleEdge(b, c);
+        ElkEdge crossHierarchy = ElkGraphUtil.createSimpleEdge(a.getChildren().get(0).getChildren().get(0),
+                b.getChildren().get(3).getChildren().get(2));
+        graph.getContainedEdges().add(crossHierarchy);
+        // Routed by layered, unlike the one between the separately laid out subtrees
+        ElkEdge includedCrossHierarchy = ElkGraphUtil.createSimpleEdge(
+                c.getChildren().get(0).getChildren().get(0), c.getChildren().get(2).getChildren().get(1));
+        c.getContainedEdges().add(includedCrossHierarchy);
+        return graph;
+    }
+
+    /**
+     * A compound node with the given number of compound children, each with the given number of leaves that
+     * are connected in a chain.
+     */
+    private static ElkNode createSubtree(ElkNode parent, String name, int compounds, int leaves) {
+        ElkNode subtree = ElkGraphUtil.createNode(parent);
+        subtree.setIdentifier(name);
+        ElkNode previousCompound = null;
+        for (int i = 0; i < compounds; i++) {
+            ElkNode compound = ElkGraphUtil.createNode(subtree);
+            compound.setIdentifier(name + i);
+            ElkNode previousLeaf = null;
+            for (int j = 0; j < leaves; j++) {
+                ElkNode leaf = ElkGraphUtil.createNode(compound);
+                leaf.setIdentifier(name + i + "_" + j);
+                leaf.setDimensions(20 + 5 * j, 20 + 3 * i);
+                ElkGraphUtil.createLabel(leaf.getIdentifier(), leaf).setDimensions(30, 10);
+                if (previousLeaf != null) {
+                    ElkGraphUtil.createSimpleEdge(previousLeaf, leaf);
+                }
+                previousLeaf = leaf;
+            }
+            if (previousCompound != null) {
+                ElkGraphUtil.createSimpleEdge(previousCompound, compound);
+            }
+            previousCompound = compound;
+        }
+        return subtree;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * Shared setup of the benchmarks and the load test. Each benchmark runs in a forked JVM. The benchmarks
+ * measure the server's code paths, hence the layout and conversion caches are disabled in the forks.
+ */
+final class Benchmarks {
+  private static boolean languagesSetUp = false;
+
+  private Benchmarks() {
+  }
+
+  /**
+   * Register the ELK Graph languages and formats just like the server does on startup.
+   */
+  static synchronized void setupLanguages() {
+    if (!languagesSetUp) {
+      new ElkGraphLanguageServerSetup().setupLanguages();
+      languagesSetUp = true;
+    }
+  }
+
+  /**
+   * @return the given graph serialized in the given format, pretty-printed if it is JSON.
+   */
+  static String serialize(final ElkNode graph, final String format) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ElkGraphConversions.save(graph, format, out, true);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts generated graphs between all pairs of distinct formats using
+ * {@link ElkGraphConversions#convert(String, String, String, boolean)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-DconversionCacheBytes=0")
+public class ConversionBenchmark {
+  @Param({ "elkt>json", "elkt>elkg", "json>elkt", "json>elkg", "elkg>elkt", "elkg>json" })
+  public String formats;
+
+  @Param({ "100", "1000", "5000" })
+  public int nodes;
+
+  @Param({ "0", "3" })
+  public int depth;
+
+  @Param({ "1.5" })
+  public double density;
+
+  private String inFormat;
+
+  private String outFormat;
+
+  private String graph;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Benchmarks.setupLanguages();
+    final String[] pair = this.formats.split(">");
+    this.inFormat = pair[0];
+    this.outFormat = pair[1];
+    this.graph = Benchmarks.serialize(GraphGenerator.generate(this.nodes, this.density, this.depth), this.inFormat);
+    final ElkGraphConversions.Result result = ElkGraphConversions.convert(this.inFormat, this.outFormat, this.graph, true);
+    if (result instanceof ElkGraphConversions.Error) {
+      throw new IllegalStateException("Conversion failed: " + result.getContent());
+    }
+  }
+
+  @Benchmark
+  public ElkGraphConversions.Result convert() {
+    return ElkGraphConversions.convert(this.inFormat, this.outFormat, this.graph, true);
+  }
+}
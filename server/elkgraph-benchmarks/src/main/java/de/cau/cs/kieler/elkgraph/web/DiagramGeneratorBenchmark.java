@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.sprotty.SModelRoot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates diagrams of generated graphs using {@link ElkGraphDiagramGenerator}, i.e. copies the graph,
+ * applies the defaults, lays it out on the layout executor and transforms the result, just like each
+ * update of a diagram does. Any registered layout version can be selected with {@code -p layoutVersion=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-DlayoutCacheBytes=0", "-DlayoutTimeout=60" })
+public class DiagramGeneratorBenchmark {
+  @Param({ "snapshot" })
+  public String layoutVersion;
+
+  @Param({ "100", "1000" })
+  public int nodes;
+
+  @Param({ "0", "3" })
+  public int depth;
+
+  @Param({ "1.5" })
+  public double density;
+
+  @Param({ "false", "true" })
+  public boolean parallel;
+
+  private final ElkGraphDiagramGenerator generator = new ElkGraphDiagramGenerator();
+
+  private ElkNode graph;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Benchmarks.setupLanguages();
+    this.graph = GraphGenerator.generate(this.nodes, this.density, this.depth);
+    if (this.generate() == null) {
+      throw new IllegalStateException("Diagram generation failed for layout version " + this.layoutVersion
+              + ".");
+    }
+  }
+
+  /**
+   * The generator works on a copy, hence the graph can be reused.
+   */
+  @Benchmark
+  public SModelRoot generate() {
+    return this.generator.generate(this.graph, this.layoutVersion, this.parallel,
+            new CancellableProgressMonitor());
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+/**
+ * Generates random graphs of a given size, edge density and hierarchy depth. The nodes are distributed
+ * evenly over a tree of compound nodes with {@code depth} levels below the root, and edges only connect
+ * siblings such that every compound node can be laid out on its own. Like the warm-up corpus, the graphs
+ * contain node and edge labels and ports. Graphs generated with the same parameters are identical.
+ */
+public final class GraphGenerator {
+  /** Number of compound children of each compound node. */
+  private static final int BRANCHING = 4;
+
+  private final double density;
+
+  private final String algorithm;
+
+  private final Random random;
+
+  private int nextId = 0;
+
+  private GraphGenerator(final double density, final String algorithm, final long seed) {
+    this.density = density;
+    this.algorithm = algorithm;
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Generate a graph laid out with ELK Layered.
+   *
+   * @see #generate(int, double, int, String, long)
+   */
+  public static ElkNode generate(final int nodes, final double density, final int depth) {
+    return GraphGenerator.generate(nodes, density, depth, "org.eclipse.elk.layered", 0);
+  }
+
+  /**
+   * @param nodes the number of nodes below the root, including compound nodes.
+   * @param density the number of edges per node.
+   * @param depth the number of levels of compound nodes below the root.
+   * @param algorithm the layout algorithm of the root and of all compound nodes.
+   * @param seed the seed of the random choices of edges, ports and labels.
+   */
+  public static ElkNode generate(final int nodes, final double density, final int depth, final String algorithm,
+          final long seed) {
+    final GraphGenerator generator = new GraphGenerator(density, algorithm, seed);
+    final ElkNode graph = ElkGraphUtil.createGraph();
+    graph.setIdentifier("graph");
+    generator.fill(graph, nodes, depth);
+    return graph;
+  }
+
+  /**
+   * Create the given number of nodes in the given parent, nesting them if there are levels left.
+   */
+  private void fill(final ElkNode parent, final int count, final int levels) {
+    parent.setProperty(CoreOptions.ALGORITHM, this.algorithm);
+    final List<ElkNode> children = new ArrayList<>(Math.min(count, 1024));
+    final int compounds = levels > 0 ? Math.min(BRANCHING, count / 2) : 0;
+    // Each level holds about the same number of nodes
+    final int direct = compounds > 0 ? Math.max(compounds, count / (levels + 1)) : count;
+    final int nested = count - direct;
+    for (int i = 0; i < direct; i++) {
+      final ElkNode node = ElkGraphUtil.createNode(parent);
+      node.setIdentifier("n" + this.nextId++);
+      if (i < compounds) {
+        this.fill(node, nested / compounds + (i < nested % compounds ? 1 : 0), levels - 1);
+      } else {
+        node.setDimensions(30 + this.random.nextInt(4) * 10, 30 + this.random.nextInt(4) * 5);
+        if (this.random.nextInt(4) > 0) {
+          ElkGraphUtil.createLabel(node.getIdentifier(), node);
+        }
+      }
+      children.add(node);
+    }
+    this.connect(children);
+  }
+
+  /**
+   * Create edges between the given siblings, keeping the siblings connected if possible.
+   */
+  private void connect(final List<ElkNode> siblings) {
+    if (siblings.size() < 2) {
+      return;
+    }
+    final int edges = (int) Math.round(siblings.size() * this.density);
+    for (int i = 0; i < edges; i++) {
+      // Spanning tree first, random edges afterwards
+      final ElkNode source;
+      final ElkNode target;
+      if (i < siblings.size() - 1) {
+        source = siblings.get(this.random.nextInt(i + 1));
+        target = siblings.get(i + 1);
+      } else {
+        source = siblings.get(this.random.nextInt(siblings.size()));
+        target = siblings.get(this.random.nextInt(siblings.size()));
+      }
+      final ElkConnectableShape targetShape;
+      if (this.random.nextInt(3) == 0) {
+        final ElkPort port = ElkGraphUtil.createPort(target);
+        port.setIdentifier("p" + this.nextId++);
+        port.setDimensions(5, 5);
+        targetShape = port;
+      } else {
+        targetShape = target;
+      }
+      final ElkEdge edge = ElkGraphUtil.createSimpleEdge(source, targetShape);
+      edge.setIdentifier("e" + this.nextId++);
+      if (this.random.nextInt(5) == 0) {
+        ElkGraphUtil.createLabel(edge.getIdentifier(), edge);
+      }
+    }
+  }
+}
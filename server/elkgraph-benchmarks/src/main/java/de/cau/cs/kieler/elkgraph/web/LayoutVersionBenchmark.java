@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import de.cau.cs.kieler.elkgraph.web.version.ElkGraphBinary;
+import de.cau.cs.kieler.elkgraph.web.version.IElkLayoutVersion;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lays out generated graphs with each layout version, on the calling thread.
+ * <ul>
+ *   <li>{@link #roundTrip()} measures what the server does for a layout: for a registered version, the
+ *   {@link ElkLayoutVersionWrapper} encodes the graph, the version decodes, lays out and encodes the
+ *   geometry, which the wrapper applies to the graph. The snapshot lays out the graph in place.</li>
+ *   <li>{@link #rawLayout()} measures the layout version alone: a registered version is handed the
+ *   encoded graph directly, the snapshot's layout engine the graph.</li>
+ * </ul>
+ * The versions must have been registered with the system property {@code elkJars}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-DlayoutVersionIdleMinutes=0")
+public class LayoutVersionBenchmark {
+  /** The jmh task passes the snapshot and all layout versions it builds, e.g. {@code -p layoutVersion=snapshot,0.7.1}. */
+  @Param({ "snapshot" })
+  public String layoutVersion;
+
+  @Param({ "100", "1000" })
+  public int nodes;
+
+  @Param({ "0", "3" })
+  public int depth;
+
+  @Param({ "1.5" })
+  public double density;
+
+  private final RecursiveGraphLayoutEngine layoutEngine = new RecursiveGraphLayoutEngine();
+
+  private ElkLayoutVersionWrapper wrapper;
+
+  private IElkLayoutVersion layouter;
+
+  private ElkNode graph;
+
+  private byte[] binaryGraph;
+
+  /** Fresh copy of the graph for each layout, which modifies it. */
+  private ElkNode copy;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Benchmarks.setupLanguages();
+    if (!Objects.equals(this.layoutVersion, "snapshot")) {
+      this.wrapper = ElkLayoutVersionRegistry.getWrapper(this.layoutVersion);
+      if (this.wrapper == null || !this.wrapper.isLoaded()) {
+        throw new IllegalStateException("Layout version " + this.layoutVersion + " could not be loaded.");
+      }
+      this.layouter = this.wrapper.getLayouter();
+    }
+    this.graph = GraphGenerator.generate(this.nodes, this.density, this.depth);
+    this.binaryGraph = ElkGraphBinary.toBytes(this.graph);
+  }
+
+  @Setup(Level.Invocation)
+  public void copyGraph() {
+    this.copy = EcoreUtil.copy(this.graph);
+  }
+
+  @Benchmark
+  public ElkNode roundTrip() {
+    if (this.wrapper == null) {
+      this.layoutEngine.layout(this.copy, new CancellableProgressMonitor());
+      return this.copy;
+    }
+    return this.wrapper.layout(this.copy, new CancellableProgressMonitor())
+            .orElseThrow(() -> new IllegalStateException("Layout failed for version " + this.layoutVersion + "."));
+  }
+
+  @Benchmark
+  public Object rawLayout() {
+    if (this.layouter == null) {
+      this.layoutEngine.layout(this.copy, new CancellableProgressMonitor());
+      return this.copy;
+    }
+    final double[] geometry = this.layouter.layoutGeometry(this.binaryGraph, () -> false);
+    if (geometry == null) {
+      throw new IllegalStateException("Layout failed for version " + this.layoutVersion + ".");
+    }
+    return geometry;
+  }
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Load generator for a local ELK Graph server. Opens a number of simulated editor sessions on the
+ * {@code /elkgraph} WebSocket (see {@link LoadTestSession}) and, at the same time, sends a constant rate
+ * of {@code /conversion} requests. All documents and conversion inputs are generated graphs of a given
+ * size, edge density and hierarchy depth.
+ *
+ * <p>Unless the URL of a running server is given, a {@link ServerLauncher} is started in a separate process
+ * with the load generator's class path, and stopped again at the end. In both cases the server's heap usage
+ * and thread count are sampled during the test.</p>
+ *
+ * <p>The edit-to-diagram latency percentiles, the error and timeout rates and the server samples are
+ * written to a JSON report and summarized in the log.</p>
+ */
+public final class LoadTest {
+  private static final Logger LOG = Logger.getLogger(LoadTest.class.getName());
+
+  /**
+   * Parameters of a load test.
+   */
+  static final class Config {
+    String url;
+
+    int sessions;
+
+    int rampUpSeconds;
+
+    int durationSeconds;
+
+    int thinkTimeMillis;
+
+    int keystrokes;
+
+    int keystrokeDelayMillis;
+
+    double conversionsPerSecond;
+
+    int timeoutSeconds;
+
+    int nodes;
+
+    double density;
+
+    int depth;
+
+    /** The time at which sessions stop editing. */
+    long endNanos;
+
+    String webSocketUrl() {
+      return this.url.replaceFirst("^http", "ws") + "/elkgraph";
+    }
+
+    JsonObject toJson() {
+      final JsonObject json = new JsonObject();
+      json.addProperty("url", this.url);
+      json.addProperty("sessions", this.sessions);
+      json.addProperty("rampUpSeconds", this.rampUpSeconds);
+      json.addProperty("durationSeconds", this.durationSeconds);
+      json.addProperty("thinkTimeMillis", this.thinkTimeMillis);
+      json.addProperty("keystrokes", this.keystrokes);
+      json.addProperty("keystrokeDelayMillis", this.keystrokeDelayMillis);
+      json.addProperty("conversionsPerSecond", this.conversionsPerSecond);
+      json.addProperty("timeoutSeconds", this.timeoutSeconds);
+      json.addProperty("nodes", this.nodes);
+      json.addProperty("density", this.density);
+      json.addProperty("depth", this.depth);
+      return json;
+    }
+  }
+
+  /**
+   * Collects the outcomes of one kind of operation from many threads.
+   */
+  static final class Recorder {
+    private final List<Long> latencies = new ArrayList<>();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    void success(final long nanos) {
+      synchronized (this.latencies) {
+        this.latencies.add(nanos);
+      }
+    }
+
+    void timeout() {
+      this.timeouts.incrementAndGet();
+    }
+
+    void error() {
+      this.errors.incrementAndGet();
+    }
+
+    JsonObject toJson() {
+      final long[] sorted;
+      synchronized (this.latencies) {
+        sorted = this.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+      }
+      final long total = sorted.length + this.timeouts.get() + this.errors.get();
+      final JsonObject json = new JsonObject();
+      json.addProperty("count", total);
+      json.addProperty("successes", sorted.length);
+      json.addProperty("timeouts", this.timeouts.get());
+      json.addProperty("errors", this.errors.get());
+      json.addProperty("timeoutRate", total == 0 ? 0 : (double) this.timeouts.get() / total);
+      json.addProperty("errorRate", total == 0 ? 0 : (double) this.errors.get() / total);
+      final JsonObject latency = new JsonObject();
+      if (sorted.length > 0) {
+        latency.addProperty("mean", Arrays.stream(sorted).average().getAsDouble() / 1e6);
+        final double[] percentiles = { 50, 90, 95, 99, 99.9 };
+        final String[] names = { "p50", "p90", "p95", "p99", "p99.9" };
+        for (int i = 0; i < percentiles.length; i++) {
+          // Nearest rank
+          final int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length);
+          latency.addProperty(names[i], sorted[Math.max(0, rank - 1)] / 1e6);
+        }
+        latency.addProperty("max", sorted[sorted.length - 1] / 1e6);
+      }
+      json.add("latencyMillis", latency);
+      return json;
+    }
+  }
+
+  private LoadTest() {
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Options options = new Options();
+    options.addOption("u", "url", true, "Base URL of a running server (default: launch a local server).");
+    options.addOption(null, "pid", true, "Process id of the running server, to sample its heap and threads.");
+    options.addOption(null, "server-root", true, "Root path of the launched server's content (default: ../..).");
+    options.addOption(null, "server-jvm-args", true, "Additional JVM arguments of the launched server.");
+    options.addOption("s", "sessions", true, "Number of editor sessions (default: 10).");
+    options.addOption(null, "ramp-up", true, "Seconds over which the sessions are opened (default: 10).");
+    options.addOption("d", "duration", true, "Seconds the sessions keep editing (default: 60).");
+    options.addOption(null, "think-time", true, "Milliseconds between a diagram and the next edit (default: 1000).");
+    options.addOption(null, "keystrokes", true, "Document changes per edit (default: 5).");
+    options.addOption(null, "keystroke-delay", true, "Milliseconds between keystrokes (default: 50).");
+    options.addOption("c", "conversions", true, "Conversion requests per second (default: 5, 0 disables).");
+    options.addOption("t", "timeout", true, "Seconds to wait for a diagram or a response (default: 10).");
+    options.addOption("n", "nodes", true, "Nodes of the generated graphs (default: 100).");
+    options.addOption(null, "density", true, "Edges per node of the generated graphs (default: 1.5).");
+    options.addOption(null, "depth", true, "Hierarchy levels of the generated graphs (default: 1).");
+    options.addOption("r", "report", true, "Path of the JSON report (default: build/reports/load-test/results.json).");
+    options.addOption("h", "help", false, "Print this help.");
+
+    final CommandLine parsedOptions;
+    try {
+      parsedOptions = new DefaultParser().parse(options, args);
+    } catch (ParseException e) {
+      new HelpFormatter().printHelp("LoadTest", options);
+      return;
+    }
+    if (parsedOptions.hasOption("help")) {
+      new HelpFormatter().printHelp("LoadTest", options);
+      return;
+    }
+    final Config config = new Config();
+    config.url = parsedOptions.getOptionValue("url", "http://localhost:8080").replaceFirst("/$", "");
+    config.sessions = Integer.parseInt(parsedOptions.getOptionValue("sessions", "10"));
+    config.rampUpSeconds = Integer.parseInt(parsedOptions.getOptionValue("ramp-up", "10"));
+    config.durationSeconds = Integer.parseInt(parsedOptions.getOptionValue("duration", "60"));
+    config.thinkTimeMillis = Integer.parseInt(parsedOptions.getOptionValue("think-time", "1000"));
+    config.keystrokes = Math.max(1, Integer.parseInt(parsedOptions.getOptionValue("keystrokes", "5")));
+    config.keystrokeDelayMillis = Integer.parseInt(parsedOptions.getOptionValue("keystroke-delay", "50"));
+    config.conversionsPerSecond = Double.parseDouble(parsedOptions.getOptionValue("conversions", "5"));
+    config.timeoutSeconds = Integer.parseInt(parsedOptions.getOptionValue("timeout", "10"));
+    config.nodes = Integer.parseInt(parsedOptions.getOptionValue("nodes", "100"));
+    config.density = Double.parseDouble(parsedOptions.getOptionValue("density", "1.5"));
+    config.depth = Integer.parseInt(parsedOptions.getOptionValue("depth", "1"));
+    final File report = new File(parsedOptions.getOptionValue("report", "build/reports/load-test/results.json"));
+
+    Benchmarks.setupLanguages();
+    final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(config.timeoutSeconds)).build();
+
+    Process server = null;
+    ServerMonitor monitor = null;
+    try {
+      if (!parsedOptions.hasOption("url")) {
+        server = LoadTest.launchServer(parsedOptions.getOptionValue("server-root", "../.."),
+                parsedOptions.getOptionValue("server-jvm-args", ""), report.getAbsoluteFile().getParentFile());
+        LoadTest.awaitReady(httpClient, config, server);
+        monitor = ServerMonitor.attach(server.pid());
+      } else if (parsedOptions.hasOption("pid")) {
+        monitor = ServerMonitor.attach(Long.parseLong(parsedOptions.getOptionValue("pid")));
+      }
+      final JsonObject results = LoadTest.run(config, httpClient);
+      if (monitor != null) {
+        results.add("server", monitor.toJson());
+      }
+      report.getAbsoluteFile().getParentFile().mkdirs();
+      Files.writeString(report.toPath(), new GsonBuilder().setPrettyPrinting().create().toJson(results));
+      LoadTest.LOG.info("Load test finished, results written to " + report.getAbsolutePath() + ":\n"
+              + LoadTest.summary(results));
+    } finally {
+      if (monitor != null) {
+        monitor.close();
+      }
+      if (server != null) {
+        server.destroy();
+        if (!server.waitFor(30, TimeUnit.SECONDS)) {
+          server.destroyForcibly();
+        }
+      }
+    }
+    // The HTTP client's threads would keep the JVM alive
+    System.exit(0);
+  }
+
+  private static JsonObject run(final Config config, final HttpClient httpClient) throws InterruptedException {
+    final Recorder edits = new Recorder();
+    final Recorder connects = new Recorder();
+    final Recorder conversions = new Recorder();
+    // Generate all graphs upfront, which takes a while
+    final ConversionTraffic traffic = new ConversionTraffic(config, httpClient, conversions);
+    final List<Thread> sessions = new ArrayList<>();
+    for (int i = 0; i < config.sessions; i++) {
+      sessions.add(new Thread(new LoadTestSession(config, i, httpClient, edits, connects), "load-test-session-" + i));
+    }
+
+    final long start = System.nanoTime();
+    config.endNanos = start + TimeUnit.SECONDS.toNanos(config.rampUpSeconds + config.durationSeconds);
+    final ScheduledExecutorService conversionScheduler = Executors.newSingleThreadScheduledExecutor();
+    if (config.conversionsPerSecond > 0) {
+      conversionScheduler.scheduleAtFixedRate(traffic::send, 0,
+              Math.max(1, (long) (1e6 / config.conversionsPerSecond)), TimeUnit.MICROSECONDS);
+    }
+    for (final Thread session : sessions) {
+      session.start();
+      if (config.sessions > 1) {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.rampUpSeconds) / (config.sessions - 1));
+      }
+    }
+    for (final Thread session : sessions) {
+      session.join();
+    }
+    // The conversion traffic lasts as long as configured, even if sessions failed early
+    TimeUnit.NANOSECONDS.sleep(config.endNanos - System.nanoTime());
+    conversionScheduler.shutdownNow();
+    traffic.awaitOutstanding();
+
+    final JsonObject results = new JsonObject();
+    results.add("config", config.toJson());
+    results.addProperty("elapsedSeconds", (System.nanoTime() - start) / 1e9);
+    results.add("sessions", connects.toJson());
+    results.add("edits", edits.toJson());
+    results.add("conversions", conversions.toJson());
+    return results;
+  }
+
+  /**
+   * Start a server in a separate process, logging to a file next to the report.
+   */
+  private static Process launchServer(final String rootPath, final String jvmArgs, final File logDirectory)
+          throws IOException {
+    final List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    if (!jvmArgs.isBlank()) {
+      command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+    }
+    final String elkJars = System.getProperty("elkJars");
+    if (elkJars != null) {
+      command.add("-DelkJars=" + elkJars);
+    }
+    command.addAll(List.of("-cp", System.getProperty("java.class.path"), ServerLauncher.class.getName(),
+            "--root", rootPath, "--mode", ServerLauncher.Mode.SIGTERM.toString()));
+    logDirectory.mkdirs();
+    final File log = new File(logDirectory, "server.log");
+    LoadTest.LOG.info("Launching the server, logging to " + log.getAbsolutePath() + ".");
+    return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+  }
+
+  /**
+   * Wait for the launched server to be warmed up.
+   */
+  private static void awaitReady(final HttpClient httpClient, final Config config, final Process server)
+          throws IOException, InterruptedException {
+    final HttpRequest request = HttpRequest.newBuilder(URI.create(config.url + "/ready"))
+            .timeout(Duration.ofSeconds(config.timeoutSeconds)).GET().build();
+    final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      if (!server.isAlive()) {
+        throw new IllegalStateException("The server terminated with exit code " + server.exitValue() + ".");
+      }
+      try {
+        if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        LoadTest.LOG.log(Level.FINE, "The server is not accepting connections yet.", e);
+      }
+      Thread.sleep(500);
+    }
+    throw new IllegalStateException("The server did not become ready within 5 minutes.");
+  }
+
+  private static String summary(final JsonObject results) {
+    final StringBuilder summary = new StringBuilder();
+    for (final String kind : List.of("sessions", "edits", "conversions")) {
+      final JsonObject recorded = results.getAsJsonObject(kind);
+      summary.append(String.format("  %-12s %6d total, %6d timeouts, %6d errors, latency %s ms%n", kind,
+              recorded.get("count").getAsLong(), recorded.get("timeouts").getAsLong(),
+              recorded.get("errors").getAsLong(), recorded.get("latencyMillis")));
+    }
+    final JsonObject server = results.getAsJsonObject("server");
+    if (server != null) {
+      summary.append(String.format("  server       max heap used %d MiB, max threads %d%n",
+              server.get("maxHeapUsedBytes").getAsLong() / (1024 * 1024), server.get("maxThreads").getAsInt()));
+    }
+    return summary.toString();
+  }
+
+  /**
+   * Sends elkt-to-JSON conversions of generated graphs. Each request is made unique by a comment, such that
+   * the server cannot answer it from its cache.
+   */
+  private static final class ConversionTraffic {
+    private static final int GRAPHS = 10;
+
+    private final Config config;
+
+    private final HttpClient httpClient;
+
+    private final Recorder conversions;
+
+    private final List<String> graphs = new ArrayList<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    /** Requests that have been sent but not answered yet. */
+    private final AtomicLong outstanding = new AtomicLong();
+
+    private ConversionTraffic(final Config config, final HttpClient httpClient, final Recorder conversions) {
+      this.config = config;
+      this.httpClient = httpClient;
+      this.conversions = conversions;
+      for (int i = 0; i < GRAPHS; i++) {
+        try {
+          this.graphs.add(Benchmarks.serialize(GraphGenerator.generate(config.nodes, config.density,
+                  config.depth, "org.eclipse.elk.layered", -1 - i), "elkt"));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    private void send() {
+      final long request = this.requests.getAndIncrement();
+      final String graph = this.graphs.get((int) (request % GRAPHS)) + "\n// request " + request + "\n";
+      final HttpRequest httpRequest = HttpRequest.newBuilder(
+              URI.create(this.config.url + "/conversion?inFormat=elkt&outFormat=json"))
+              .timeout(Duration.ofSeconds(this.config.timeoutSeconds))
+              .header("Content-Type", ElkGraphConversions.contentType("elkt"))
+              .POST(HttpRequest.BodyPublishers.ofString(graph, StandardCharsets.UTF_8))
+              .build();
+      final long start = System.nanoTime();
+      this.outstanding.incrementAndGet();
+      this.httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding()).whenComplete((response, t) -> {
+        this.outstanding.decrementAndGet();
+        if (t != null) {
+          if (t instanceof HttpTimeoutException || t.getCause() instanceof HttpTimeoutException) {
+            this.conversions.timeout();
+          } else {
+            this.conversions.error();
+          }
+        } else if (response.statusCode() != 200) {
+          this.conversions.error();
+        } else {
+          this.conversions.success(System.nanoTime() - start);
+        }
+      });
+    }
+
+    /**
+     * Wait until all requests have been answered or have timed out.
+     */
+    private void awaitOutstanding() throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L * this.config.timeoutSeconds);
+      while (this.outstanding.get() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(100);
+      }
+    }
+  }
+}
@@ -0,0 +1,434 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * A simulated editor session on the {@code /elkgraph} WebSocket. Like the web client, it speaks the
+ * language server protocol: it initializes the language server, opens an elkt document and keeps editing
+ * it until the load test ends, upon which the WebSocket is closed as if the browser tab had been closed.
+ *
+ * <p>Each edit is typed in a number of keystrokes, each of which is sent as a change of the document's
+ * content, just like the editor does. Only the last keystroke of an edit renames a marker node's label,
+ * hence the edit-to-diagram latency is the time between sending the last keystroke and receiving the first
+ * diagram action that contains the new label. The next edit starts after the think time.</p>
+ */
+public class LoadTestSession implements Runnable {
+  private static final Logger LOG = Logger.getLogger(LoadTestSession.class.getName());
+
+  private static final String DIAGRAM_ACCEPT = "\"diagram/accept\"";
+
+  private final LoadTest.Config config;
+
+  private final int index;
+
+  private final HttpClient httpClient;
+
+  private final LoadTest.Recorder edits;
+
+  private final LoadTest.Recorder connects;
+
+  private final String uri;
+
+  private final EditScript script;
+
+  private WebSocket webSocket;
+
+  /** Sends are serialized since a WebSocket only allows one outstanding send. */
+  private CompletableFuture<WebSocket> lastSend;
+
+  private final CompletableFuture<Void> initialized = new CompletableFuture<>();
+
+  private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+  /** The quoted label the session is waiting for, together with the future to complete when it shows up. */
+  private volatile String awaitedMarker;
+
+  private volatile CompletableFuture<Void> markerReceived;
+
+  private int documentVersion = 1;
+
+  public LoadTestSession(final LoadTest.Config config, final int index, final HttpClient httpClient,
+          final LoadTest.Recorder edits, final LoadTest.Recorder connects) {
+    this.config = config;
+    this.index = index;
+    this.httpClient = httpClient;
+    this.edits = edits;
+    this.connects = connects;
+    this.uri = "inmemory:/loadtest" + index + ".elkt";
+    this.script = new EditScript(GraphGenerator.generate(config.nodes, config.density, config.depth,
+            "org.eclipse.elk.layered", index), index);
+  }
+
+  @Override
+  public void run() {
+    final long start = System.nanoTime();
+    try {
+      this.connect();
+      this.connects.success(System.nanoTime() - start);
+    } catch (TimeoutException e) {
+      LoadTestSession.LOG.warning("Session " + this.index + " timed out connecting or waiting for its first diagram.");
+      this.connects.timeout();
+      this.close();
+      return;
+    } catch (Exception e) {
+      LoadTestSession.LOG.log(Level.WARNING, "Session " + this.index + " failed to connect.", e);
+      this.connects.error();
+      this.close();
+      return;
+    }
+    try {
+      while (System.nanoTime() < this.config.endNanos && !this.closed.isDone()) {
+        Thread.sleep(this.config.thinkTimeMillis);
+        final List<String> keystrokes = this.script.nextEdit(this.config.keystrokes);
+        for (int i = 0; i < keystrokes.size() - 1; i++) {
+          this.changeDocument(keystrokes.get(i));
+          Thread.sleep(this.config.keystrokeDelayMillis);
+        }
+        final long editStart = System.nanoTime();
+        final CompletableFuture<Void> received = this.awaitMarker(this.script.marker());
+        this.changeDocument(keystrokes.get(keystrokes.size() - 1));
+        try {
+          received.get(this.config.timeoutSeconds, TimeUnit.SECONDS);
+          this.edits.success(System.nanoTime() - editStart);
+        } catch (TimeoutException e) {
+          this.edits.timeout();
+        } catch (ExecutionException e) {
+          this.edits.error();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      this.close();
+    }
+  }
+
+  /**
+   * Open the WebSocket, initialize the language server and open the document.
+   *
+   * @throws TimeoutException if there is no diagram of the document within the timeout.
+   */
+  private void connect() throws Exception {
+    this.webSocket = this.httpClient.newWebSocketBuilder()
+            .connectTimeout(Duration.ofSeconds(this.config.timeoutSeconds))
+            .buildAsync(URI.create(this.config.webSocketUrl()), new Listener())
+            .get(this.config.timeoutSeconds, TimeUnit.SECONDS);
+    this.lastSend = CompletableFuture.completedFuture(this.webSocket);
+
+    final JsonObject initializeParams = new JsonObject();
+    initializeParams.add("processId", null);
+    initializeParams.add("rootUri", null);
+    initializeParams.add("capabilities", new JsonObject());
+    this.send(LoadTestSession.request(1, "initialize", initializeParams));
+    this.initialized.get(this.config.timeoutSeconds, TimeUnit.SECONDS);
+    this.send(LoadTestSession.notification("initialized", new JsonObject()));
+
+    // The server requests the diagram by itself as soon as the document has been opened
+    final CompletableFuture<Void> received = this.awaitMarker(this.script.marker());
+    final JsonObject textDocument = new JsonObject();
+    textDocument.addProperty("uri", this.uri);
+    textDocument.addProperty("languageId", "elkt");
+    textDocument.addProperty("version", this.documentVersion);
+    textDocument.addProperty("text", this.script.text());
+    final JsonObject params = new JsonObject();
+    params.add("textDocument", textDocument);
+    this.send(LoadTestSession.notification("textDocument/didOpen", params));
+    received.get(this.config.timeoutSeconds, TimeUnit.SECONDS);
+  }
+
+  private void changeDocument(final String text) {
+    final JsonObject textDocument = new JsonObject();
+    textDocument.addProperty("uri", this.uri);
+    textDocument.addProperty("version", ++this.documentVersion);
+    final JsonObject change = new JsonObject();
+    change.addProperty("text", text);
+    final JsonArray changes = new JsonArray();
+    changes.add(change);
+    final JsonObject params = new JsonObject();
+    params.add("textDocument", textDocument);
+    params.add("contentChanges", changes);
+    this.send(LoadTestSession.notification("textDocument/didChange", params));
+  }
+
+  private CompletableFuture<Void> awaitMarker(final String marker) {
+    final CompletableFuture<Void> received = new CompletableFuture<>();
+    this.markerReceived = received;
+    this.awaitedMarker = "\"" + marker + "\"";
+    if (this.closed.isDone()) {
+      received.completeExceptionally(new IllegalStateException("The WebSocket has been closed."));
+    }
+    return received;
+  }
+
+  private synchronized void send(final JsonObject message) {
+    final String text = message.toString();
+    this.lastSend = this.lastSend.thenCompose((ws) -> ws.sendText(text, true));
+    this.lastSend.whenComplete((ws, t) -> {
+      if (t != null) {
+        this.onClosed();
+      }
+    });
+  }
+
+  private void close() {
+    if (this.webSocket != null && !this.webSocket.isOutputClosed()) {
+      synchronized (this) {
+        this.lastSend = this.lastSend.thenCompose((ws) -> ws.sendClose(WebSocket.NORMAL_CLOSURE, ""));
+      }
+      try {
+        this.lastSend.get(this.config.timeoutSeconds, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        this.webSocket.abort();
+      }
+    }
+    this.onClosed();
+  }
+
+  private void onClosed() {
+    this.closed.complete(null);
+    final CompletableFuture<Void> received = this.markerReceived;
+    if (received != null) {
+      received.completeExceptionally(new IllegalStateException("The WebSocket has been closed."));
+    }
+  }
+
+  private void handle(final String message) {
+    if (message.contains(LoadTestSession.DIAGRAM_ACCEPT)) {
+      final String marker = this.awaitedMarker;
+      if (marker != null && message.contains(marker)) {
+        this.markerReceived.complete(null);
+      }
+      return;
+    }
+    final JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+    final JsonElement id = json.get("id");
+    if (json.has("method")) {
+      if (id != null) {
+        // Requests of the server, e.g. to register capabilities, are acknowledged
+        final JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        response.add("result", null);
+        this.send(response);
+      }
+    } else if (id != null && id.isJsonPrimitive() && id.getAsInt() == 1) {
+      if (json.has("error")) {
+        this.initialized.completeExceptionally(new IllegalStateException("Initialization failed: " + json.get("error")));
+      } else {
+        this.initialized.complete(null);
+      }
+    }
+  }
+
+  private static JsonObject request(final int id, final String method, final JsonObject params) {
+    final JsonObject request = LoadTestSession.notification(method, params);
+    request.addProperty("id", id);
+    return request;
+  }
+
+  private static JsonObject notification(final String method, final JsonObject params) {
+    final JsonObject notification = new JsonObject();
+    notification.addProperty("jsonrpc", "2.0");
+    notification.addProperty("method", method);
+    notification.add("params", params);
+    return notification;
+  }
+
+  /**
+   * Receives JSON-RPC messages, which may be split into several parts and may be sent as binary messages
+   * if the server has been started with {@code websocketBinaryFrames}.
+   */
+  private final class Listener implements WebSocket.Listener {
+    private final StringBuilder text = new StringBuilder();
+
+    private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+    @Override
+    public CompletionStage<?> onText(final WebSocket webSocket, final CharSequence data, final boolean last) {
+      this.text.append(data);
+      if (last) {
+        final String message = this.text.toString();
+        this.text.setLength(0);
+        LoadTestSession.this.handle(message);
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(final WebSocket webSocket, final ByteBuffer data, final boolean last) {
+      final byte[] bytes = new byte[data.remaining()];
+      data.get(bytes);
+      this.binary.writeBytes(bytes);
+      if (last) {
+        final String message = this.binary.toString(StandardCharsets.UTF_8);
+        this.binary.reset();
+        LoadTestSession.this.handle(message);
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(final WebSocket webSocket, final int statusCode, final String reason) {
+      LoadTestSession.this.onClosed();
+      return null;
+    }
+
+    @Override
+    public void onError(final WebSocket webSocket, final Throwable error) {
+      LoadTestSession.LOG.log(Level.FINE, "WebSocket of session " + LoadTestSession.this.index + " failed.", error);
+      LoadTestSession.this.onClosed();
+    }
+  }
+
+  /**
+   * A sequence of edits of an elkt document that consists of a generated graph. An edit adds a node with an
+   * edge, removes a previously added node, or changes the layout direction, and always renames the marker
+   * node's label.
+   */
+  static final class EditScript {
+    private static final String[] DIRECTIONS = { "RIGHT", "DOWN", "LEFT", "UP" };
+
+    private final Random random;
+
+    private final List<String> lines;
+
+    /** Position of the layout direction's line, right after the graph's identifier. */
+    private final int directionLine;
+
+    private final int markerLine;
+
+    private final List<String> topLevelNodes = new ArrayList<>();
+
+    private final Deque<String> addedLines = new ArrayDeque<>();
+
+    private int edits = 0;
+
+    EditScript(final ElkNode graph, final long seed) {
+      this.random = new Random(seed);
+      for (final ElkNode child : graph.getChildren()) {
+        this.topLevelNodes.add(child.getIdentifier());
+      }
+      try {
+        this.lines = new ArrayList<>(Arrays.asList(Benchmarks.serialize(graph, "elkt").split("\n")));
+      } catch (java.io.IOException e) {
+        throw new IllegalStateException(e);
+      }
+      this.directionLine = !this.lines.isEmpty() && this.lines.get(0).startsWith("graph ") ? 1 : 0;
+      this.lines.add(this.directionLine, "elk.direction: " + DIRECTIONS[0]);
+      this.lines.add("node marker { label " + "\"" + this.marker() + "\" }");
+      this.markerLine = this.lines.size() - 1;
+    }
+
+    /**
+     * @return the label of the marker node after the latest edit.
+     */
+    String marker() {
+      return "edit" + this.edits;
+    }
+
+    String text() {
+      return String.join("\n", this.lines);
+    }
+
+    /**
+     * Perform the next edit.
+     *
+     * @return the contents of the document after each of the given number of keystrokes, the last one of
+     *         which is the result of the edit.
+     */
+    List<String> nextEdit(final int keystrokes) {
+      final int line;
+      final String newLine;
+      final int choice = this.random.nextInt(4);
+      if ((choice == 0 && !this.addedLines.isEmpty()) || this.addedLines.size() >= 50) {
+        line = this.lines.indexOf(this.addedLines.removeFirst());
+        newLine = null;
+      } else if (choice == 1 || this.topLevelNodes.isEmpty()) {
+        line = this.directionLine;
+        newLine = "elk.direction: " + DIRECTIONS[this.random.nextInt(DIRECTIONS.length)];
+      } else {
+        final String id = "added" + this.edits;
+        line = this.lines.size();
+        newLine = "node " + id + " { label \"" + id + "\" } edge " + id + " -> "
+                + this.topLevelNodes.get(this.random.nextInt(this.topLevelNodes.size()));
+        this.addedLines.addLast(newLine);
+      }
+      final String oldLine = line < this.lines.size() ? this.lines.get(line) : "";
+      final String target = newLine != null ? newLine : "";
+
+      // Delete back to the common prefix, then type the rest, spread evenly across the keystrokes
+      int prefix = 0;
+      while (prefix < oldLine.length() && prefix < target.length() && oldLine.charAt(prefix) == target.charAt(prefix)) {
+        prefix++;
+      }
+      final int deletions = oldLine.length() - prefix;
+      final int insertions = target.length() - prefix;
+      final List<String> ret = new ArrayList<>(keystrokes);
+      for (int i = 1; i < keystrokes; i++) {
+        final int step = (deletions + insertions) * i / keystrokes;
+        final String intermediate = step <= deletions
+                ? oldLine.substring(0, oldLine.length() - step)
+                : target.substring(0, prefix + step - deletions);
+        ret.add(this.textWith(line, intermediate));
+      }
+
+      this.edits++;
+      if (newLine == null) {
+        this.lines.remove(line);
+      } else if (line == this.lines.size()) {
+        this.lines.add(newLine);
+      } else {
+        this.lines.set(line, newLine);
+      }
+      // The marker precedes all added lines, hence removals do not move it
+      this.lines.set(this.markerLine, "node marker { label " + "\"" + this.marker() + "\" }");
+      ret.add(this.text());
+      return ret;
+    }
+
+    private String textWith(final int line, final String content) {
+      final List<String> copy = new ArrayList<>(this.lines);
+      if (line == copy.size()) {
+        copy.add(content);
+      } else {
+        copy.set(line, content);
+      }
+      return String.join("\n", copy);
+    }
+  }
+}
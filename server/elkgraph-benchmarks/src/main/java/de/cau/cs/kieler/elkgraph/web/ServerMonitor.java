@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.tools.attach.VirtualMachine;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * Samples the heap usage and the number of threads of the server process once per second. Connects to
+ * the server's local management agent, which is started through the attach API if necessary, hence the
+ * server must run on the same machine and as the same user.
+ */
+public class ServerMonitor implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(ServerMonitor.class.getName());
+
+  private final long start = System.nanoTime();
+
+  private final JMXConnector connector;
+
+  private final MemoryMXBean memory;
+
+  private final ThreadMXBean threads;
+
+  private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+    final Thread thread = new Thread(runnable, "load-test-server-monitor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final List<Sample> samples = new ArrayList<>();
+
+  private static final class Sample {
+    private final long millis;
+
+    private final long heapUsed;
+
+    private final long heapCommitted;
+
+    private final int threads;
+
+    private Sample(final long millis, final long heapUsed, final long heapCommitted, final int threads) {
+      this.millis = millis;
+      this.heapUsed = heapUsed;
+      this.heapCommitted = heapCommitted;
+      this.threads = threads;
+    }
+  }
+
+  private ServerMonitor(final JMXConnector connector) throws IOException {
+    this.connector = connector;
+    final MBeanServerConnection connection = connector.getMBeanServerConnection();
+    this.memory = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.MEMORY_MXBEAN_NAME,
+            MemoryMXBean.class);
+    this.threads = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.THREAD_MXBEAN_NAME,
+            ThreadMXBean.class);
+    this.sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Start monitoring the process with the given id.
+   *
+   * @return the monitor, or {@code null} if the process could not be attached to.
+   */
+  public static ServerMonitor attach(final long pid) {
+    try {
+      final VirtualMachine vm = VirtualMachine.attach(Long.toString(pid));
+      final String address;
+      try {
+        address = vm.startLocalManagementAgent();
+      } finally {
+        vm.detach();
+      }
+      return new ServerMonitor(JMXConnectorFactory.connect(new JMXServiceURL(address)));
+    } catch (Exception e) {
+      ServerMonitor.LOG.log(Level.WARNING, "Failed to attach to process " + pid
+              + ", server heap and threads are not reported.", e);
+      return null;
+    }
+  }
+
+  private void sample() {
+    try {
+      final MemoryUsage heap = this.memory.getHeapMemoryUsage();
+      final Sample sample = new Sample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start),
+              heap.getUsed(), heap.getCommitted(), this.threads.getThreadCount());
+      synchronized (this.samples) {
+        this.samples.add(sample);
+      }
+    } catch (RuntimeException e) {
+      ServerMonitor.LOG.log(Level.FINE, "Failed to sample the server.", e);
+    }
+  }
+
+  /**
+   * @return the extreme values and all samples.
+   */
+  public JsonObject toJson() {
+    final JsonObject json = new JsonObject();
+    final JsonArray jsonSamples = new JsonArray();
+    long maxHeapUsed = 0;
+    long maxHeapCommitted = 0;
+    int maxThreads = 0;
+    synchronized (this.samples) {
+      for (final Sample sample : this.samples) {
+        maxHeapUsed = Math.max(maxHeapUsed, sample.heapUsed);
+        maxHeapCommitted = Math.max(maxHeapCommitted, sample.heapCommitted);
+        maxThreads = Math.max(maxThreads, sample.threads);
+        final JsonObject jsonSample = new JsonObject();
+        jsonSample.addProperty("millis", sample.millis);
+        jsonSample.addProperty("heapUsedBytes", sample.heapUsed);
+        jsonSample.addProperty("heapCommittedBytes", sample.heapCommitted);
+        jsonSample.addProperty("threads", sample.threads);
+        jsonSamples.add(jsonSample);
+      }
+    }
+    json.addProperty("maxHeapUsedBytes", maxHeapUsed);
+    json.addProperty("maxHeapCommittedBytes", maxHeapCommitted);
+    json.addProperty("maxThreads", maxThreads);
+    try {
+      json.addProperty("peakThreads", this.threads.getPeakThreadCount());
+    } catch (RuntimeException e) {
+      ServerMonitor.LOG.log(Level.FINE, "Failed to query the server's peak thread count.", e);
+    }
+    json.add("samples", jsonSamples);
+    return json;
+  }
+
+  @Override
+  public void close() {
+    this.sampler.shutdownNow();
+    try {
+      this.connector.close();
+    } catch (IOException e) {
+      ServerMonitor.LOG.log(Level.FINE, "Failed to disconnect from the server.", e);
+    }
+  }
+}
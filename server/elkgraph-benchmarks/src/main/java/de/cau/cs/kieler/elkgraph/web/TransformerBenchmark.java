@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.sprotty.SGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transforms generated graphs into sprotty models using {@link ElkGraphTransformer}, sequentially and in
+ * parallel, to see how the transformation scales. The transformer reads its threshold once, which works
+ * since each combination of parameters runs in a fresh fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransformerBenchmark {
+  @Param({ "1000", "10000", "50000" })
+  public int nodes;
+
+  @Param({ "0", "3" })
+  public int depth;
+
+  @Param({ "1.5" })
+  public double density;
+
+  /** The server's default, and never parallel. */
+  @Param({ "5000", "2147483647" })
+  public String parallelThreshold;
+
+  private ElkNode graph;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    System.setProperty("transformParallelThreshold", this.parallelThreshold);
+    Benchmarks.setupLanguages();
+    this.graph = GraphGenerator.generate(this.nodes, this.density, this.depth);
+    // Reading unset properties with cloneable defaults stores them, which must not happen while measuring
+    ElkGraphTransformer.transform(this.graph);
+  }
+
+  @Benchmark
+  public SGraph transform() {
+    return ElkGraphTransformer.transform(this.graph);
+  }
+}
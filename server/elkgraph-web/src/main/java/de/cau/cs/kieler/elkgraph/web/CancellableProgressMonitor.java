@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+
+/**
+ * Progress monitor that can be canceled from another thread. ELK ignores thread interrupts but checks
+ * {@link #isCanceled()} between layout phases, hence this is the only way to stop a running layout.
+ * Sub-monitors share the cancellation state of their parent.
+ *
+ * <p>Layouts that do not run inside the server's JVM can register a listener to be notified about the
+ * cancellation, see {@link #onCancel(Runnable)}.</p>
+ */
+public class CancellableProgressMonitor extends BasicProgressMonitor {
+  private final AtomicBoolean canceled;
+
+  private final List<Runnable> cancelListeners;
+
+  public CancellableProgressMonitor() {
+    this(new AtomicBoolean(), new CopyOnWriteArrayList<>());
+  }
+
+  private CancellableProgressMonitor(final AtomicBoolean canceled, final List<Runnable> cancelListeners) {
+    super();
+    this.canceled = canceled;
+    this.cancelListeners = cancelListeners;
+  }
+
+  /**
+   * Request cancellation of the monitored layout.
+   *
+   * @return {@code true} if the layout had not been canceled before.
+   */
+  public boolean cancel() {
+    if (this.canceled.compareAndSet(false, true)) {
+      this.cancelListeners.forEach(Runnable::run);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Register a listener that is run by the thread canceling the layout. If the layout has been canceled
+   * already, the listener is run right away.
+   */
+  public void onCancel(final Runnable listener) {
+    this.cancelListeners.add(listener);
+    if (this.isCanceled() && this.cancelListeners.remove(listener)) {
+      listener.run();
+    }
+  }
+
+  public void removeCancelListener(final Runnable listener) {
+    this.cancelListeners.remove(listener);
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return this.canceled.get();
+  }
+
+  @Override
+  protected BasicProgressMonitor doSubTask(final float work, final int maxHierarchyLevels) {
+    return new CancellableProgressMonitor(this.canceled, this.cancelListeners)
+            .withMaxHierarchyLevels(maxHierarchyLevels > 0 ? maxHierarchyLevels - 1 : maxHierarchyLevels);
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Cache of conversion results. Since the result of a conversion only depends on the input text, the input
+ * and output formats, and whether JSON is pretty-printed, a conversion is identified by a hash of these,
+ * which also serves as the (weak) entity tag of the result. The cache is bounded by the estimated memory
+ * footprint of the cached results, which can be configured using the system property
+ * {@code conversionCacheBytes}; setting it to 0 disables the cache and entity tags. The least recently used
+ * results are evicted first.
+ *
+ * <p>Entity tags do not depend on the cache's contents, hence a client can revalidate a result with
+ * {@code If-None-Match} even after it has been evicted.</p>
+ */
+public final class ElkConversionCache {
+  private static final Logger LOG = Logger.getLogger(ElkConversionCache.class.getName());
+
+  private static final long MAX_BYTES = Long.getLong("conversionCacheBytes", 32L * 1024 * 1024);
+
+  private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static long bytes = 0;
+
+  private static long hits = 0;
+
+  private static long misses = 0;
+
+  private static long evictions = 0;
+
+  private static final class Entry {
+    private final ElkGraphConversions.Result result;
+
+    private final long bytes;
+
+    private Entry(final ElkGraphConversions.Result result, final long bytes) {
+      this.result = result;
+      this.bytes = bytes;
+    }
+  }
+
+  private ElkConversionCache() {
+  }
+
+  public static boolean isEnabled() {
+    return MAX_BYTES > 0;
+  }
+
+  /**
+   * @return the largest input, in bytes, whose conversion is cached. Larger inputs are streamed instead
+   *         of being buffered to compute their entity tag.
+   */
+  public static long getMaxInputBytes() {
+    return MAX_BYTES / 16;
+  }
+
+  /**
+   * @return the weak entity tag of the conversion of the given graph.
+   */
+  public static String etagOf(final String inFormat, final String outFormat, final boolean prettyPrint,
+          final byte[] graph) {
+    final Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(inFormat, StandardCharsets.UTF_8).putChar('>');
+    hasher.putString(outFormat, StandardCharsets.UTF_8).putChar(prettyPrint ? 'p' : 'c');
+    hasher.putBytes(graph);
+    // 128 bits are plenty to tell conversions apart
+    return "W/\"" + hasher.hash().toString().substring(0, 32) + "\"";
+  }
+
+  /**
+   * Weak comparison as required for {@code If-None-Match}.
+   *
+   * @param ifNoneMatch the value of the request's {@code If-None-Match} header, may be {@code null}.
+   * @return whether the header matches the given entity tag.
+   */
+  public static boolean matches(final String ifNoneMatch, final String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    final String opaqueTag = etag.substring(2);
+    for (final String candidate : ifNoneMatch.split(",")) {
+      final String tag = candidate.trim();
+      if (tag.equals("*") || tag.equals(opaqueTag) || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the successful conversion stored for the given entity tag, if any.
+   */
+  public static synchronized Optional<ElkGraphConversions.Result> get(final String etag) {
+    final Entry entry = entries.get(etag);
+    if (entry == null) {
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    return Optional.of(entry.result);
+  }
+
+  /**
+   * Store a successful conversion.
+   */
+  public static synchronized void put(final String etag, final ElkGraphConversions.Result result) {
+    final long resultBytes = 2L * result.getContent().length() + 200;
+    if (!isEnabled() || resultBytes > MAX_BYTES) {
+      return;
+    }
+    final Entry previous = entries.put(etag, new Entry(result, resultBytes));
+    if (previous != null) {
+      bytes -= previous.bytes;
+    }
+    bytes += resultBytes;
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (bytes > MAX_BYTES && iterator.hasNext()) {
+      final Entry eldest = iterator.next();
+      iterator.remove();
+      bytes -= eldest.bytes;
+      evictions++;
+    }
+    LOG.fine(() -> "Conversion cache: " + entries.size() + " results, ~" + bytes + " bytes, "
+            + hits + " hits, " + misses + " misses, " + evictions + " evictions.");
+  }
+
+  public static synchronized long getHits() {
+    return hits;
+  }
+
+  public static synchronized long getMisses() {
+    return misses;
+  }
+
+  public static synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public static synchronized int getEntries() {
+    return entries.size();
+  }
+
+  public static synchronized long getEstimatedBytes() {
+    return bytes;
+  }
+
+  public static long getMaxBytes() {
+    return MAX_BYTES;
+  }
+}
@@ -9,16 +9,30 @@
  */
 package de.cau.cs.kieler.elkgraph.web;
 
+import java.util.AbstractMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.eclipse.sprotty.Action;
 import org.eclipse.sprotty.IDiagramServer;
 import org.eclipse.sprotty.SModelRoot;
+import org.eclipse.sprotty.SetModelAction;
+import org.eclipse.sprotty.UpdateModelAction;
 import org.eclipse.sprotty.xtext.IDiagramGenerator;
 import org.eclipse.sprotty.xtext.LanguageAwareDiagramServer;
 import org.eclipse.sprotty.xtext.ls.IssueProvider;
 import org.eclipse.xtext.ide.server.ILanguageServerAccess;
 
+/**
+ * Diagram server for a single client. Models are generated anew whenever the document changes. While a
+ * user types, only the latest document state is laid out: each generation waits for a debounce window of
+ * {@code diagramUpdateDebounce} milliseconds (system property, default 50) and is canceled, including its
+ * layout, as soon as a newer generation starts.
+ */
 public class ElkDiagramServer extends LanguageAwareDiagramServer {
   public static class ChangeLayoutVersionAction implements Action {
     public static final String KIND = "versionChange";
@@ -87,14 +101,119 @@ public class ElkDiagramServer extends LanguageAwareDiagramServer {
     }
   }
 
+  /**
+   * Sent by the client if it failed to apply an {@link IncrementalUpdateModelAction}, e.g. because it
+   * missed a previous update. The server answers with the complete model.
+   */
+  public static class RequestFullModelAction implements Action {
+    public static final String KIND = "requestFullModel";
+
+    private String kind = ElkDiagramServer.RequestFullModelAction.KIND;
+
+    public RequestFullModelAction() {
+    }
+
+    @Override
+    public String getKind() {
+      return this.kind;
+    }
+
+    public void setKind(final String kind) {
+      this.kind = kind;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      return Objects.equals(this.kind, ((ElkDiagramServer.RequestFullModelAction) obj).kind);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(this.kind);
+    }
+
+    @Override
+    public String toString() {
+      return this.getClass().getSimpleName() + " [" +
+              "\n  kind = " + this.kind +
+              "\n]";
+    }
+  }
+
+  private static final long DEBOUNCE_MILLIS = Math.max(0, Long.getLong("diagramUpdateDebounce", 50));
+
+  /**
+   * Passes the monitor of a generation from {@link #createDiagramGeneratorContext} to the generator, along
+   * with the context it belongs to.
+   */
+  private static final ThreadLocal<Map.Entry<IDiagramGenerator.Context, CancellableProgressMonitor>> updateMonitor =
+          new ThreadLocal<>();
+
   private String currentLayoutVersion = "snapshot";
 
+  /** The monitor of the latest generation, all previous ones have been canceled. */
+  private final AtomicReference<CancellableProgressMonitor> latestUpdate = new AtomicReference<>();
+
+  /** The model the client currently shows, i.e. the base of the next incremental update. */
+  private SModelRoot lastSentRoot;
+
+  /**
+   * Replace model updates by incremental updates relative to the model sent last, unless the
+   * difference is larger than the new model itself.
+   */
+  @Override
+  public void dispatch(final Action action) {
+    if (action instanceof SetModelAction) {
+      synchronized (this) {
+        this.lastSentRoot = ((SetModelAction) action).getNewRoot();
+      }
+    } else if (action instanceof UpdateModelAction && ((UpdateModelAction) action).getNewRoot() != null) {
+      final UpdateModelAction updateAction = (UpdateModelAction) action;
+      final IncrementalUpdateModelAction incrementalAction;
+      synchronized (this) {
+        incrementalAction = SModelDiff.diff(this.lastSentRoot, updateAction.getNewRoot());
+        this.lastSentRoot = updateAction.getNewRoot();
+      }
+      if (incrementalAction != null) {
+        incrementalAction.setAnimate(updateAction.getAnimate());
+        super.dispatch(incrementalAction);
+        return;
+      }
+    }
+    super.dispatch(action);
+  }
+
+  /**
+   * Generations that have been superseded or failed yield no model. The client keeps showing the
+   * previous one.
+   */
+  @Override
+  public CompletableFuture<Void> updateModel(final SModelRoot newRoot) {
+    if (newRoot == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return super.updateModel(newRoot);
+  }
+
   @Override
   protected void handleAction(final Action action) {
     if (Objects.equals(action.getKind(), ElkDiagramServer.ChangeLayoutVersionAction.KIND)) {
       final ElkDiagramServer.ChangeLayoutVersionAction versionAction = ((ElkDiagramServer.ChangeLayoutVersionAction) action);
       this.currentLayoutVersion = versionAction.version;
+      // Layout versions are loaded lazily, do it now rather than during the first layout's time budget
+      ElkLayoutVersionRegistry.getWrapper(this.currentLayoutVersion);
       this.getDiagramLanguageServer().getDiagramUpdater().updateDiagram(this);
+    } else if (Objects.equals(action.getKind(), ElkDiagramServer.RequestFullModelAction.KIND)) {
+      final SModelRoot model = this.getModel();
+      if (model != null) {
+        this.dispatch(new SetModelAction(model));
+      }
     } else {
       super.handleAction(action);
     }
@@ -104,9 +223,51 @@ public class ElkDiagramServer extends LanguageAwareDiagramServer {
   protected IDiagramGenerator.Context createDiagramGeneratorContext(final ILanguageServerAccess.Context context, final IDiagramServer server, final IssueProvider issueProvider) {
     final IDiagramGenerator.Context generatorContext = super.createDiagramGeneratorContext(context, server, issueProvider);
     generatorContext.getState().getOptions().put("layoutVersion", this.currentLayoutVersion);
+    // The generator is called right afterwards on the same thread
+    ElkDiagramServer.updateMonitor.set(new AbstractMap.SimpleImmutableEntry<>(generatorContext, this.startUpdate()));
     return generatorContext;
   }
 
+  /**
+   * Cancel the generation in progress, if any, and wait for the debounce window to pass.
+   *
+   * @return the monitor of the new generation, which is canceled if another one started in the meantime.
+   */
+  private CancellableProgressMonitor startUpdate() {
+    final CancellableProgressMonitor monitor = new CancellableProgressMonitor();
+    final CancellableProgressMonitor previous = this.latestUpdate.getAndSet(monitor);
+    if (previous != null) {
+      previous.cancel();
+    }
+    if (ElkDiagramServer.DEBOUNCE_MILLIS > 0) {
+      final CountDownLatch superseded = new CountDownLatch(1);
+      final Runnable listener = superseded::countDown;
+      monitor.onCancel(listener);
+      try {
+        superseded.await(ElkDiagramServer.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        monitor.cancel();
+      } finally {
+        monitor.removeCancelListener(listener);
+      }
+    }
+    return monitor;
+  }
+
+  /**
+   * Take the monitor handed over by the current thread. A monitor left behind by a context that has not
+   * been generated is discarded rather than applied to another generation.
+   *
+   * @return the monitor of the generation with the given context, or {@code null} if the model is not
+   *         generated on behalf of a diagram server.
+   */
+  public static CancellableProgressMonitor takeUpdateMonitor(final IDiagramGenerator.Context context) {
+    final Map.Entry<IDiagramGenerator.Context, CancellableProgressMonitor> entry = ElkDiagramServer.updateMonitor.get();
+    ElkDiagramServer.updateMonitor.remove();
+    return entry != null && entry.getKey() == context ? entry.getValue() : null;
+  }
+
   /**
    * Usually the result of this method is extracted from configuration properties sent with the request.
    * However, as we (as the server) initiate the model update, we are unaware of what the client desires
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Converts many graphs with a single request to {@code /conversion/batch}. The request body is NDJSON,
+ * each line an object with the graph as a string or, for the json format, as an object:
+ *
+ * <pre>
+ * {"id": "a", "inFormat": "elkt", "outFormat": "json", "graph": "node n1"}
+ * </pre>
+ *
+ * <p>The {@code id} is optional and echoed in the result. Missing formats default to the request's
+ * {@code inFormat} and {@code outFormat} parameters. The graphs are converted in parallel and each result
+ * is sent as an NDJSON line as soon as it is available, hence in completion order:</p>
+ *
+ * <pre>
+ * {"index": 0, "id": "a", "status": 200, "contentType": "application/json", "content": "..."}
+ * {"index": 1, "status": 400, "contentType": "application/json", "error": {"message": ..., "type": ...}}
+ * </pre>
+ *
+ * <p>The number of conversion threads is set by the system property {@code conversionThreads} (default:
+ * the number of processors). At most {@code conversionBatchWindow} graphs of a request (default: twice the
+ * number of threads) are held in memory at a time, reading the request pauses until earlier graphs have
+ * been converted and sent. The same compression and {@code pretty} parameter as for single conversions apply.</p>
+ */
+public final class ElkGraphBatchConversions {
+  private static final Logger LOG = Logger.getLogger(ElkGraphBatchConversions.class.getName());
+
+  private static final String CONTENT_TYPE = "application/x-ndjson";
+
+  private static final int THREADS = Math.max(1,
+          Integer.getInteger("conversionThreads", Runtime.getRuntime().availableProcessors()));
+
+  private static final int WINDOW = Math.max(1, Integer.getInteger("conversionBatchWindow", 2 * THREADS));
+
+  private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+  private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "elk-conversion-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private ElkGraphBatchConversions() {
+  }
+
+  public static void handleRequest(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    if (!ElkGraphBatchConversions.checkRequest(req, resp)) {
+      return;
+    }
+    final String inFormat = req.getParameter("inFormat");
+    final String outFormat = req.getParameter("outFormat");
+    final boolean prettyPrint = !"false".equals(req.getParameter("pretty"));
+    ElkGraphBatchConversions.process(req, resp, ElkGraphBatchConversions.executor, ElkGraphBatchConversions.WINDOW,
+            (index, item) -> ElkGraphBatchConversions.convert(index, item, inFormat, outFormat, prettyPrint));
+  }
+
+  /**
+   * Check the content type and encoding of an NDJSON batch request.
+   *
+   * @return {@code false} if the request is invalid, in which case an error has been sent.
+   */
+  static boolean checkRequest(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    final String reqContentType = req.getHeader("Content-Type");
+    if (reqContentType == null || !reqContentType.startsWith(ElkGraphBatchConversions.CONTENT_TYPE)) {
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_NOT_ACCEPTABLE,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Unsupported content type: '" + reqContentType + "', expected '"
+                      + ElkGraphBatchConversions.CONTENT_TYPE + "'."));
+      return false;
+    }
+    final String contentEncoding = req.getHeader("Content-Encoding");
+    if (contentEncoding != null && !contentEncoding.equalsIgnoreCase("gzip")
+            && !contentEncoding.equalsIgnoreCase("identity")) {
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Unsupported content encoding: '" + contentEncoding + "'."));
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Process each non-blank line of the request on the given executor and stream the results, one line
+   * each, in the order in which they become available. At most {@code window} lines are processed or
+   * waiting to be sent at a time.
+   *
+   * <p>Only the request thread writes the response, hence a client that reads slowly holds up its own
+   * request but no thread of the executor.</p>
+   */
+  static void process(final HttpServletRequest req, final HttpServletResponse resp, final Executor executor,
+          final int window, final BiFunction<Integer, String, JsonObject> processor) throws IOException {
+    resp.setStatus(HttpServletResponse.SC_OK);
+    resp.setHeader("Content-Type", ElkGraphBatchConversions.CONTENT_TYPE);
+    final BlockingQueue<JsonObject> completed = new LinkedBlockingQueue<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                 ElkGraphConversions.requestStream(req), StandardCharsets.UTF_8));
+         Writer writer = new BufferedWriter(new OutputStreamWriter(
+                 ElkGraphConversions.responseStream(req, resp), StandardCharsets.UTF_8))) {
+      int submitted = 0;
+      int written = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        if (submitted - written >= window) {
+          written += ElkGraphBatchConversions.write(completed.take(), completed, writer);
+        } else if (!completed.isEmpty()) {
+          written += ElkGraphBatchConversions.write(completed.poll(), completed, writer);
+        }
+        final int itemIndex = submitted++;
+        final String item = line;
+        executor.execute(() -> {
+          JsonObject result;
+          try {
+            result = processor.apply(itemIndex, item);
+          } catch (RuntimeException e) {
+            ElkGraphBatchConversions.LOG.log(Level.SEVERE, "Failed to process batch item " + itemIndex + ".", e);
+            result = ElkGraphBatchConversions.failure(itemIndex, e);
+          }
+          completed.add(result);
+        });
+      }
+      while (written < submitted) {
+        written += ElkGraphBatchConversions.write(completed.take(), completed, writer);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Batch interrupted.");
+    }
+  }
+
+  /**
+   * Write the given result line and all further results that are already available, then flush them.
+   *
+   * @return the number of lines written.
+   */
+  private static int write(final JsonObject first, final BlockingQueue<JsonObject> completed,
+          final Writer writer) throws IOException {
+    int count = 0;
+    for (JsonObject result = first; result != null; result = completed.poll()) {
+      ElkGraphBatchConversions.GSON.toJson(result, writer);
+      writer.write('\n');
+      count++;
+    }
+    writer.flush();
+    return count;
+  }
+
+  /**
+   * @return the result line for an item whose processing failed unexpectedly.
+   */
+  private static JsonObject failure(final int index, final RuntimeException e) {
+    final JsonObject result = new JsonObject();
+    result.addProperty("index", index);
+    ElkGraphBatchConversions.addResult(result, new ElkGraphConversions.Error(
+            HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ElkGraphConversions.FAILURE_OUTPUT,
+            "Failed to process batch item.", e));
+    return result;
+  }
+
+  /**
+   * Convert the graph given by a single line of the request.
+   *
+   * @return the result line.
+   */
+  private static JsonObject convert(final int index, final String item, final String defaultInFormat,
+          final String defaultOutFormat, final boolean prettyPrint) {
+    final JsonObject result = new JsonObject();
+    result.addProperty("index", index);
+    ElkGraphConversions.Result conversion;
+    try {
+      final JsonObject json = JsonParser.parseString(item).getAsJsonObject();
+      if (json.has("id")) {
+        result.add("id", json.get("id"));
+      }
+      final String inFormat = json.has("inFormat") ? json.get("inFormat").getAsString() : defaultInFormat;
+      final String outFormat = json.has("outFormat") ? json.get("outFormat").getAsString() : defaultOutFormat;
+      final JsonElement graph = json.get("graph");
+      if (inFormat == null || outFormat == null) {
+        conversion = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST, "Missing specification of 'inFormat' or 'outFormat'.");
+      } else if (!ElkGraphConversions.KNOWN_FORMATS.contains(inFormat)
+              || !ElkGraphConversions.KNOWN_FORMATS.contains(outFormat)) {
+        conversion = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST,
+                "Unknown graph format '" + (ElkGraphConversions.KNOWN_FORMATS.contains(inFormat) ? outFormat : inFormat) + "'.");
+      } else if (graph == null || graph.isJsonNull()) {
+        conversion = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST, "Missing 'graph'.");
+      } else {
+        conversion = ElkGraphConversions.convert(inFormat, outFormat, ElkGraphBatchConversions.graphString(graph),
+                prettyPrint);
+      }
+    } catch (RuntimeException e) {
+      ElkGraphBatchConversions.LOG.log(Level.INFO, "Invalid batch item " + index + ".", e);
+      conversion = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_REQUEST, "Invalid batch item.", e);
+    }
+    ElkGraphBatchConversions.addResult(result, conversion);
+    return result;
+  }
+
+  /**
+   * @return the given graph of a batch item, which is either a string or a json object.
+   */
+  static String graphString(final JsonElement graph) {
+    return graph.isJsonPrimitive() ? graph.getAsString() : graph.toString();
+  }
+
+  /**
+   * Add the status and the content or error of the given result to the given result line.
+   */
+  static void addResult(final JsonObject line, final ElkGraphConversions.Result result) {
+    line.addProperty("status", result.getStatusCode());
+    line.addProperty("contentType", result.getContentType());
+    if (result instanceof ElkGraphConversions.Error) {
+      line.add("error", JsonParser.parseString(result.getContent()));
+    } else {
+      line.addProperty("content", result.getContent());
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.cau.cs.kieler.elkgraph.web.version.ElkLayoutResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * Lays out many independent graphs with a single request to {@code /layout/batch}. The request body is
+ * NDJSON as described for {@link ElkGraphBatchConversions}, each line may additionally name its
+ * {@code layoutVersion} and whether to lay out the graph using the {@code parallel} layout engine:
+ *
+ * <pre>
+ * {"id": "a", "inFormat": "json", "layoutVersion": "0.9.0", "graph": {"id": "root", "children": []}}
+ * </pre>
+ *
+ * <p>Missing values default to the request's {@code inFormat}, {@code outFormat}, {@code layoutVersion}
+ * and {@code parallel} parameters, the output format to the input format, the layout version to the
+ * snapshot, and the engine to the server's default, see {@link ElkGraphLayouts}. Each result line is sent
+ * as soon as its graph has been laid out, together with the time in milliseconds spent loading, laying
+ * out, and saving the graph:</p>
+ *
+ * <pre>
+ * {"index": 0, "id": "a", "status": 200, "contentType": "application/json", "content": "...",
+ *  "timing": {"load": 1.2, "layout": 35.1, "save": 2.0}}
+ * </pre>
+ *
+ * <p>The graphs are laid out on a work-stealing pool of {@code layoutBatchThreads} threads (system
+ * property, default: the number of processors), which is separate from the {@link ElkLayoutExecutor} so
+ * that batches do not crowd out interactive layouts. Parallel layouts lay out their subtrees on the same
+ * pool. At most {@code layoutBatchWindow} graphs of a request (default: twice the number of threads) are
+ * held in memory at a time. Each layout is canceled after the server's layout timeout.</p>
+ */
+public final class ElkGraphBatchLayouts {
+  private static final Logger LOG = Logger.getLogger(ElkGraphBatchLayouts.class.getName());
+
+  private static final int THREADS = Math.max(1,
+          Integer.getInteger("layoutBatchThreads", Runtime.getRuntime().availableProcessors()));
+
+  private static final int WINDOW = Math.max(1, Integer.getInteger("layoutBatchWindow", 2 * THREADS));
+
+  private static final ForkJoinPool pool = new ForkJoinPool(THREADS, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+      final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("elk-batch-layout-" + count.incrementAndGet());
+      return thread;
+    }
+  }, null, true);
+
+  private static final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+    final Thread thread = new Thread(runnable, "elk-batch-layout-timeouts");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private ElkGraphBatchLayouts() {
+  }
+
+  public static void handleRequest(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    if (!ElkGraphBatchConversions.checkRequest(req, resp)) {
+      return;
+    }
+    final String inFormat = req.getParameter("inFormat");
+    final String outFormat = req.getParameter("outFormat");
+    final String layoutVersion = Objects.requireNonNullElse(req.getParameter("layoutVersion"), "snapshot");
+    final boolean prettyPrint = !"false".equals(req.getParameter("pretty"));
+    final boolean parallel = ElkGraphLayouts.isParallel(req.getParameter("parallel"));
+    ElkGraphBatchConversions.process(req, resp, ElkGraphBatchLayouts.pool, ElkGraphBatchLayouts.WINDOW,
+            (index, item) -> ElkGraphBatchLayouts.layout(index, item, inFormat, outFormat, layoutVersion,
+                    parallel, prettyPrint));
+  }
+
+  /**
+   * Lay out the graph given by a single line of the request.
+   *
+   * @return the result line.
+   */
+  private static JsonObject layout(final int index, final String item, final String defaultInFormat,
+          final String defaultOutFormat, final String defaultLayoutVersion, final boolean defaultParallel,
+          final boolean prettyPrint) {
+    final JsonObject result = new JsonObject();
+    result.addProperty("index", index);
+    final JsonObject timing = new JsonObject();
+    ElkGraphConversions.Result layout;
+    try {
+      final JsonObject json = JsonParser.parseString(item).getAsJsonObject();
+      if (json.has("id")) {
+        result.add("id", json.get("id"));
+      }
+      final String inFormat = json.has("inFormat") ? json.get("inFormat").getAsString() : defaultInFormat;
+      final String outFormat = json.has("outFormat") ? json.get("outFormat").getAsString()
+              : Objects.requireNonNullElse(defaultOutFormat, inFormat);
+      final String layoutVersion = json.has("layoutVersion") ? json.get("layoutVersion").getAsString()
+              : defaultLayoutVersion;
+      final boolean parallel = json.has("parallel") ? json.get("parallel").getAsBoolean() : defaultParallel;
+      final JsonElement graph = json.get("graph");
+      if (inFormat == null) {
+        layout = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST, "Missing specification of 'inFormat'.");
+      } else if (!ElkGraphConversions.KNOWN_FORMATS.contains(inFormat)
+              || !ElkGraphConversions.KNOWN_FORMATS.contains(outFormat)) {
+        layout = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST,
+                "Unknown graph format '" + (ElkGraphConversions.KNOWN_FORMATS.contains(inFormat) ? outFormat : inFormat) + "'.");
+      } else if (!ElkGraphLayouts.isKnownVersion(layoutVersion)) {
+        layout = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST, "Unknown layouter version: '" + layoutVersion + "'.");
+      } else if (graph == null || graph.isJsonNull()) {
+        layout = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST, "Missing 'graph'.");
+      } else {
+        layout = ElkGraphBatchLayouts.layout(ElkGraphBatchConversions.graphString(graph), inFormat, outFormat,
+                layoutVersion, parallel, prettyPrint, timing);
+      }
+    } catch (RuntimeException e) {
+      ElkGraphBatchLayouts.LOG.log(Level.INFO, "Invalid batch item " + index + ".", e);
+      layout = new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_REQUEST, "Invalid batch item.", e);
+    }
+    ElkGraphBatchConversions.addResult(result, layout);
+    if (timing.size() > 0) {
+      result.add("timing", timing);
+    }
+    return result;
+  }
+
+  private static ElkGraphConversions.Result layout(final String graph, final String inFormat,
+          final String outFormat, final String layoutVersion, final boolean parallel, final boolean prettyPrint,
+          final JsonObject timing) {
+    long start = System.nanoTime();
+    final ElkNode elkGraph;
+    try {
+      elkGraph = ElkGraphConversions.load(inFormat, new ByteArrayInputStream(graph.getBytes(StandardCharsets.UTF_8)));
+    } catch (Exception e) {
+      ElkGraphBatchLayouts.LOG.log(Level.INFO, "Failed to load input graph.", e);
+      return new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_INPUT, "Failed to load input graph.", e);
+    } finally {
+      start = ElkGraphBatchLayouts.addTiming(timing, "load", start);
+    }
+
+    final CancellableProgressMonitor monitor = new CancellableProgressMonitor();
+    final int timeout = ElkGraphLayouts.getTimeoutSeconds();
+    final ScheduledFuture<?> timer = ElkGraphBatchLayouts.timeouts.schedule(monitor::cancel, timeout, TimeUnit.SECONDS);
+    final long layoutStart = start;
+    ElkLayoutResult failure = null;
+    try {
+      failure = ElkGraphBatchLayouts.layout(elkGraph, layoutVersion, parallel, monitor);
+    } catch (Exception e) {
+      failure = ElkLayoutResult.failure(e, System.nanoTime() - start);
+    } finally {
+      timer.cancel(false);
+      start = ElkGraphBatchLayouts.addTiming(timing, "layout", start);
+    }
+    if (monitor.isCanceled()) {
+      // Only the timer cancels layouts
+      ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.TIMEOUT, 0);
+      return new ElkGraphConversions.Error(HttpServletResponse.SC_GATEWAY_TIMEOUT,
+              ElkGraphLayouts.FAILURE_LAYOUT, "Layout timed out after " + timeout + " seconds.");
+    }
+    if (failure != null) {
+      ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.FAILURE, 0);
+      return new ElkGraphConversions.Error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              ElkGraphLayouts.FAILURE_LAYOUT, "Layout failed: " + failure.getErrorType() + ": "
+                      + failure.getErrorMessage());
+    }
+    ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.SUCCESS, start - layoutStart);
+
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ElkGraphConversions.save(elkGraph, outFormat, out, prettyPrint);
+      return new ElkGraphConversions.Result(HttpServletResponse.SC_OK, ElkGraphConversions.contentType(outFormat),
+              out.toString(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      ElkGraphBatchLayouts.LOG.log(Level.INFO, "Failed to serialize laid out graph.", e);
+      return new ElkGraphConversions.Error(HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_OUTPUT, "Failed to serialize laid out graph.", e);
+    } finally {
+      ElkGraphBatchLayouts.addTiming(timing, "save", start);
+    }
+  }
+
+  /**
+   * Lay out the given graph in place, using one of the snapshot's layout engines, the wrapper of the given
+   * layout version, or a worker process.
+   *
+   * @return {@code null} if the layout succeeded, or the failure.
+   */
+  private static ElkLayoutResult layout(final ElkNode elkGraph, final String layoutVersion,
+          final boolean parallel, final CancellableProgressMonitor monitor) throws IOException, InterruptedException {
+    final ElkLayoutResult result;
+    if (ElkLayoutWorkerPool.isEnabled()) {
+      result = ElkLayoutWorkerPool.layout(layoutVersion, elkGraph, monitor);
+    } else if (Objects.equals(layoutVersion, "snapshot")) {
+      (parallel ? ElkGraphLayouts.parallelLayoutEngine : ElkGraphLayouts.layoutEngine).layout(elkGraph, monitor);
+      return null;
+    } else {
+      result = ElkLayoutVersionRegistry.getWrapper(layoutVersion).layout(List.of(elkGraph), monitor, parallel).get(0);
+      if (!result.isSuccess() && !monitor.isCanceled()) {
+        ElkMetrics.recordWrapperFailure(layoutVersion);
+      }
+    }
+    return result.isSuccess() ? null : result;
+  }
+
+  /**
+   * Add the time elapsed since the given start to the given timing.
+   *
+   * @return the current time.
+   */
+  private static long addTiming(final JsonObject timing, final String stage, final long start) {
+    final long now = System.nanoTime();
+    timing.addProperty(stage, (now - start) / 1000 / 1000.0);
+    return now;
+  }
+}
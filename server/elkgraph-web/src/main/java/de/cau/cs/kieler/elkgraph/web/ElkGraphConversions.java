@@ -9,22 +9,37 @@
  */
 package de.cau.cs.kieler.elkgraph.web;
 
-import com.google.common.io.CharStreams;
-
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.eclipse.elk.graph.ElkNode;
 import org.eclipse.elk.graph.json.ElkGraphJson;
+import org.eclipse.elk.graph.json.JsonExporter;
+import org.eclipse.elk.graph.json.JsonImportException;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.xtend2.lib.StringConcatenation;
 import org.eclipse.xtext.diagnostics.Diagnostic;
@@ -34,6 +49,18 @@ import org.eclipse.xtext.xbase.lib.ListExtensions;
 
 import static java.util.Map.entry;
 
+/**
+ * Conversions between the ELK graph formats elkt, elkg and json. Requests to the {@code /conversion}
+ * endpoint are streamed: the input graph is loaded straight from the request body and the converted graph
+ * is written straight into the response, gzip-compressed if the request's {@code Content-Encoding} or
+ * {@code Accept-Encoding} headers ask for it. JSON is pretty-printed unless the {@code pretty} parameter
+ * is {@code false}.
+ *
+ * <p>Conversions are cached by the {@link ElkConversionCache}. Requests whose body is small enough to be
+ * cached, after decompression, are buffered instead of streamed, their responses carry an {@code ETag},
+ * and an {@code If-None-Match} header naming that tag is answered with {@code 304 Not Modified} without
+ * converting anything.</p>
+ */
 public class ElkGraphConversions {
   public static class Result {
     public final int statusCode;
@@ -107,11 +134,15 @@ public class ElkGraphConversions {
           "elkt", "text/plain",
           "error", "application/json");
 
-  private static final String FAILURE_REQUEST = "request";
+  static final String FAILURE_REQUEST = "request";
+
+  static final String FAILURE_INPUT = "input";
+
+  static final String FAILURE_OUTPUT = "output";
 
-  private static final String FAILURE_INPUT = "input";
+  private static final Gson PRETTY_GSON = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
 
-  private static final String FAILURE_OUTPUT = "output";
+  private static final Gson COMPACT_GSON = new GsonBuilder().disableHtmlEscaping().create();
 
   /**
    * - - - - - - - - - - - - - -
@@ -126,15 +157,164 @@ public class ElkGraphConversions {
     }
     final String inFormat = req.getParameter("inFormat");
     final String outFormat = req.getParameter("outFormat");
-    final String graph = CharStreams.toString(req.getReader());
-    final ElkGraphConversions.Result result = ElkGraphConversions.convert(inFormat, outFormat, graph);
-    ElkGraphConversions.sendResult(resp, result);
+    final boolean prettyPrint = !"false".equals(req.getParameter("pretty"));
+    try (InputStream in = ElkGraphConversions.requestStream(req)) {
+      InputStream body = in;
+      if (ElkConversionCache.isEnabled() && req.getContentLengthLong() >= 0
+              && req.getContentLengthLong() <= ElkConversionCache.getMaxInputBytes()) {
+        // The content length is the compressed size of gzip bodies, hence the limit is checked again while
+        // the body is read
+        final int maxBytes = (int) Math.min(ElkConversionCache.getMaxInputBytes(), Integer.MAX_VALUE - 8);
+        final byte[] graph = in.readNBytes(maxBytes + 1);
+        if (graph.length <= maxBytes) {
+          ElkGraphConversions.handleCacheableRequest(req, resp, graph, inFormat, outFormat, prettyPrint);
+          return;
+        }
+        body = new SequenceInputStream(new ByteArrayInputStream(graph), in);
+      }
+      ElkGraphConversions.handleStreamingRequest(req, resp, body, inFormat, outFormat, prettyPrint);
+    }
+  }
+
+  /**
+   * Load the graph from the given request body and stream the converted graph into the response.
+   */
+  private static void handleStreamingRequest(final HttpServletRequest req, final HttpServletResponse resp,
+          final InputStream in, final String inFormat, final String outFormat, final boolean prettyPrint)
+          throws IOException {
+    ElkMetrics.recordConversion(inFormat, outFormat, req.getContentLengthLong());
+    if (Objects.equals(inFormat, outFormat)) {
+      resp.setStatus(HttpServletResponse.SC_OK);
+      resp.setHeader("Content-Type", ElkGraphConversions.contentType(outFormat));
+      try (OutputStream out = ElkGraphConversions.responseStream(req, resp)) {
+        in.transferTo(out);
+      }
+      return;
+    }
+
+    final ElkNode elkNode;
+    try {
+      elkNode = ElkGraphConversions.load(inFormat, in);
+    } catch (Exception e) {
+      ElkGraphConversions.LOG.log(Level.INFO, "Failed to load input graph.", e);
+      ElkMetrics.recordConversionFailure(inFormat, outFormat);
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_INPUT,
+              "Failed to load input graph.", e));
+      return;
+    }
+
+    if (!ElkGraphConversions.sendGraph(req, resp, elkNode, outFormat, prettyPrint)) {
+      ElkMetrics.recordConversionFailure(inFormat, outFormat);
+    }
+  }
+
+  /**
+   * Convert the buffered request body, or take the result from the cache, and send it along with its
+   * entity tag. Nothing is converted or sent if the client already has the result.
+   *
+   * <p>Answering a POST with {@code 304 Not Modified} deliberately deviates from RFC 9110, which demands
+   * {@code 412 Precondition Failed} for methods other than GET and HEAD. Conversions are safe and only
+   * depend on the body, which does not fit into a GET request, and {@code 304} tells the client to reuse its
+   * result rather than reporting an error. POST responses are not cached by intermediaries, which hence
+   * pass the {@code 304} on unchanged.</p>
+   */
+  private static void handleCacheableRequest(final HttpServletRequest req, final HttpServletResponse resp,
+          final byte[] graph, final String inFormat, final String outFormat, final boolean prettyPrint)
+          throws IOException {
+    ElkMetrics.recordConversion(inFormat, outFormat, graph.length);
+    final String etag = ElkConversionCache.etagOf(inFormat, outFormat, prettyPrint, graph);
+    if (ElkConversionCache.matches(req.getHeader("If-None-Match"), etag)) {
+      resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      resp.setHeader("ETag", etag);
+      return;
+    }
+    final ElkGraphConversions.Result result = Objects.equals(inFormat, outFormat)
+            ? new ElkGraphConversions.Result(HttpServletResponse.SC_OK, ElkGraphConversions.contentType(outFormat),
+                    new String(graph, StandardCharsets.UTF_8))
+            : ElkGraphConversions.convert(inFormat, outFormat, graph, prettyPrint, etag);
+    if (result instanceof ElkGraphConversions.Error) {
+      ElkMetrics.recordConversionFailure(inFormat, outFormat);
+      ElkGraphConversions.sendResult(resp, result);
+      return;
+    }
+    resp.setStatus(result.statusCode);
+    resp.setHeader("Content-Type", result.contentType);
+    resp.setHeader("ETag", etag);
+    try (OutputStream out = ElkGraphConversions.responseStream(req, resp)) {
+      out.write(result.content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Stream the given graph in the given format into the response.
+   *
+   * @return whether the graph has been sent, otherwise an error has been sent instead.
+   */
+  static boolean sendGraph(final HttpServletRequest req, final HttpServletResponse resp, final ElkNode graph,
+          final String format, final boolean prettyPrint) throws IOException {
+    resp.setStatus(HttpServletResponse.SC_OK);
+    resp.setHeader("Content-Type", ElkGraphConversions.contentType(format));
+    try {
+      final OutputStream out = ElkGraphConversions.responseStream(req, resp);
+      ElkGraphConversions.save(graph, format, out, prettyPrint);
+      out.close();
+      return true;
+    } catch (Exception e) {
+      ElkGraphConversions.LOG.log(Level.INFO, "Failed to serialize converted graph.", e);
+      if (resp.isCommitted()) {
+        // Part of the graph has been sent already, abort the response to tell the client it is incomplete
+        throw new IOException("Failed to serialize converted graph.", e);
+      }
+      resp.reset();
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_OUTPUT,
+              "Failed to serialize converted graph.", e));
+      return false;
+    }
   }
 
-  private static PrintWriter sendResult(final HttpServletResponse resp, final ElkGraphConversions.Result result) throws IOException {
+  static void sendResult(final HttpServletResponse resp, final ElkGraphConversions.Result result) throws IOException {
       resp.setStatus(result.statusCode);
       resp.setHeader("Content-Type", result.contentType);
-      return resp.getWriter().append(result.content);
+      resp.getOutputStream().write(result.content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return the request body, decompressed if necessary.
+   */
+  static InputStream requestStream(final HttpServletRequest req) throws IOException {
+    final InputStream in = req.getInputStream();
+    return "gzip".equalsIgnoreCase(req.getHeader("Content-Encoding")) ? new GZIPInputStream(in, 65536) : in;
+  }
+
+  /**
+   * @return the response body, which is compressed if the client accepts gzip. Flushing the stream sends
+   *         all data written so far.
+   */
+  static OutputStream responseStream(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    resp.setHeader("Vary", "Accept-Encoding");
+    if (ElkGraphConversions.acceptsGzip(req)) {
+      resp.setHeader("Content-Encoding", "gzip");
+      return new GZIPOutputStream(resp.getOutputStream(), 65536, true);
+    }
+    return resp.getOutputStream();
+  }
+
+  private static boolean acceptsGzip(final HttpServletRequest req) {
+    final Enumeration<String> headers = req.getHeaders("Accept-Encoding");
+    while (headers != null && headers.hasMoreElements()) {
+      for (final String coding : headers.nextElement().split(",")) {
+        final String[] parts = coding.trim().split(";");
+        if (parts[0].trim().equalsIgnoreCase("gzip")) {
+          // A quality of zero means that gzip is not acceptable
+          return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+      }
+    }
+    return false;
   }
 
   private static Optional<ElkGraphConversions.Error> checkRequest(final HttpServletRequest req) {
@@ -162,6 +342,15 @@ public class ElkGraphConversions {
               "Missing specification of 'outFormat'."));
     }
 
+    final String contentEncoding = req.getHeader("Content-Encoding");
+    if (contentEncoding != null && !contentEncoding.equalsIgnoreCase("gzip")
+            && !contentEncoding.equalsIgnoreCase("identity")) {
+      return Optional.of(new ElkGraphConversions.Error(
+              HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Unsupported content encoding: '" + contentEncoding + "'."));
+    }
+
     for (final String format : new String[] { inFormat, outFormat }) {
       if (!ElkGraphConversions.KNOWN_FORMATS.contains(format)) {
         return Optional.of(new ElkGraphConversions.Error(
@@ -184,7 +373,7 @@ public class ElkGraphConversions {
     _builder.newLine();
     _builder.append("    ");
     _builder.append("\"message\": \"");
-    _builder.append(message, "    ");
+    _builder.append(message != null ? ElkGraphConversions.escape(message) : null, "    ");
     _builder.append("\"");
     _builder.newLineIfNotEmpty();
     _builder.append("    ");
@@ -273,17 +462,54 @@ public class ElkGraphConversions {
    * - - - - - - - - - - - - - -
    */
   public static ElkGraphConversions.Result convert(final String inFormat, final String outFormat, final String graph) {
+    return ElkGraphConversions.convert(inFormat, outFormat, graph, true);
+  }
+
+  /**
+   * Convert the given graph, or take the result from the {@link ElkConversionCache}.
+   */
+  public static ElkGraphConversions.Result convert(final String inFormat, final String outFormat, final String graph,
+          final boolean prettyPrint) {
     if (Objects.equals(inFormat, outFormat)) {
+      ElkMetrics.recordConversion(inFormat, outFormat, graph.length());
       return new ElkGraphConversions.Result(
               HttpServletResponse.SC_OK,
               ElkGraphConversions.contentType(outFormat), graph);
     }
+    final byte[] bytes = graph.getBytes(StandardCharsets.UTF_8);
+    ElkMetrics.recordConversion(inFormat, outFormat, bytes.length);
+    final ElkGraphConversions.Result result = ElkConversionCache.isEnabled()
+            ? ElkGraphConversions.convert(inFormat, outFormat, bytes, prettyPrint,
+                    ElkConversionCache.etagOf(inFormat, outFormat, prettyPrint, bytes))
+            : ElkGraphConversions.convertNow(inFormat, outFormat, new ByteArrayInputStream(bytes), prettyPrint);
+    if (result instanceof ElkGraphConversions.Error) {
+      ElkMetrics.recordConversionFailure(inFormat, outFormat);
+    }
+    return result;
+  }
+
+  private static ElkGraphConversions.Result convert(final String inFormat, final String outFormat, final byte[] graph,
+          final boolean prettyPrint, final String etag) {
+    final Optional<ElkGraphConversions.Result> cachedResult = ElkConversionCache.get(etag);
+    if (cachedResult.isPresent()) {
+      return cachedResult.get();
+    }
+    final ElkGraphConversions.Result result = ElkGraphConversions.convertNow(inFormat, outFormat,
+            new ByteArrayInputStream(graph), prettyPrint);
+    if (!(result instanceof ElkGraphConversions.Error)) {
+      ElkConversionCache.put(etag, result);
+    }
+    return result;
+  }
+
+  /**
+   * Convert the given graph without consulting the cache.
+   */
+  static ElkGraphConversions.Result convertNow(final String inFormat, final String outFormat, final InputStream graph,
+          final boolean prettyPrint) {
     ElkNode elkNode = null;
     try {
-      switch (inFormat) {
-        case "json" -> elkNode = ElkGraphConversions.loadJson(graph);
-        case "elkt", "elkg" -> elkNode = ElkGraphConversions.loadElkGraph(graph, inFormat);
-      }
+      elkNode = ElkGraphConversions.load(inFormat, graph);
     } catch (Exception e) {
       ElkGraphConversions.LOG.log(Level.INFO, "Failed to load input graph.", e);
       return new ElkGraphConversions.Error(
@@ -294,10 +520,9 @@ public class ElkGraphConversions {
     String serializedResult = null;
     try {
       if (outFormat != null) {
-        switch (outFormat) {
-          case "json" -> serializedResult = ElkGraphConversions.toJson(elkNode);
-          case "elkt", "elkg" -> serializedResult = ElkGraphConversions.toElkGraph(elkNode, outFormat);
-        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ElkGraphConversions.save(elkNode, outFormat, out, prettyPrint);
+        serializedResult = out.toString(StandardCharsets.UTF_8);
       }
     } catch (Exception e) {
       ElkGraphConversions.LOG.log(Level.INFO, "Failed to serialize converted graph.", e);
@@ -312,9 +537,42 @@ public class ElkGraphConversions {
             serializedResult);
   }
 
-  private static ElkNode loadElkGraph(final String graph, final String format) throws IOException, ImportExportException {
+  /**
+   * Load a graph of the given format from the given stream, which is left open.
+   */
+  public static ElkNode load(final String format, final InputStream in) throws IOException, ImportExportException {
+    final ElkGraphEvents.Load event = new ElkGraphEvents.Load();
+    event.begin();
+    final ElkNode graph = switch (format) {
+      case "json" -> ElkGraphConversions.loadJson(in);
+      case "elkt", "elkg" -> ElkGraphConversions.loadElkGraph(in, format);
+      default -> throw new IllegalArgumentException("Unknown graph format '" + format + "'.");
+    };
+    event.end();
+    event.commit(null, format, graph);
+    return graph;
+  }
+
+  /**
+   * Write the given graph in the given format to the given stream, which is flushed but left open. The
+   * graph is moved to a new resource in the process.
+   */
+  public static void save(final ElkNode graph, final String format, final OutputStream out,
+          final boolean prettyPrint) throws IOException {
+    final ElkGraphEvents.Save event = new ElkGraphEvents.Save();
+    event.begin();
+    switch (format) {
+      case "json" -> ElkGraphConversions.saveJson(graph, out, prettyPrint);
+      case "elkt", "elkg" -> ElkGraphConversions.saveElkGraph(graph, format, out);
+      default -> throw new IllegalArgumentException("Unknown graph format '" + format + "'.");
+    }
+    event.end();
+    event.commit(null, format, graph);
+  }
+
+  private static ElkNode loadElkGraph(final InputStream in, final String format) throws IOException, ImportExportException {
     final Resource r = ElkGraphConversions.createResource(("dummy." + format));
-    r.load(new URIConverter.ReadableInputStream(graph, "UTF-8"), null);
+    r.load(in, null);
     final ElkNode elkGraph = ((ElkNode) r.getContents().get(0));
     if (!r.getErrors().isEmpty()) {
       EList<Resource.Diagnostic> _errors = r.getErrors();
@@ -323,28 +581,36 @@ public class ElkGraphConversions {
     return elkGraph;
   }
 
-  private static ElkNode loadJson(final String graph) {
-    return ElkGraphJson.forGraph(graph).toElk();
+  private static ElkNode loadJson(final InputStream in) {
+    // Parse into a tree directly instead of reading the input into a String first
+    final JsonElement json = JsonParser.parseReader(
+            new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    if (!json.isJsonObject()) {
+      throw new JsonImportException("Top-level element of the graph must be a json object.");
+    }
+    return ElkGraphJson.forGraph(json.getAsJsonObject()).toElk();
   }
 
-  private static String toJson(final ElkNode graph) {
-    return ElkGraphJson.forGraph(graph).prettyPrint(true).omitUnknownLayoutOptions(false).toJson();
+  private static void saveJson(final ElkNode graph, final OutputStream out, final boolean prettyPrint) throws IOException {
+    final JsonExporter exporter = new JsonExporter();
+    exporter.setOptions(false, false, false, false, false);
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+    (prettyPrint ? ElkGraphConversions.PRETTY_GSON : ElkGraphConversions.COMPACT_GSON).toJson(exporter.export(graph), writer);
+    writer.flush();
   }
 
-  private static String toElkGraph(final ElkNode graph, final String format) throws IOException {
+  private static void saveElkGraph(final ElkNode graph, final String format, final OutputStream out) throws IOException {
     final Resource r = ElkGraphConversions.createResource(("dummy." + format));
     r.getContents().add(graph);
-    final StringWriter sw = new StringWriter();
-    final URIConverter.WriteableOutputStream os = new URIConverter.WriteableOutputStream(sw, "UTF-8");
-    r.save(os, null);
-    return sw.toString();
+    r.save(out, null);
+    out.flush();
   }
 
   private static Resource createResource(final String uri) {
     return new ResourceSetImpl().createResource(URI.createURI(uri));
   }
 
-  private static String contentType(final String format) {
+  static String contentType(final String format) {
     return ElkGraphConversions.FORMAT_TO_CONTENT_TYPE.get(format);
   }
 
@@ -367,9 +633,16 @@ public class ElkGraphConversions {
           entry("\r", "\\r"),
           entry("\t", "\\t"));
 
+  /**
+   * Escape all characters in a single pass, replacing one after the other would escape the backslashes of
+   * earlier replacements again.
+   */
   private static String escape(final String str) {
-    return IterableExtensions.fold(ElkGraphConversions.JSON_ESCAPES.entrySet(), str, (String s, Map.Entry<String, String> pattern) -> {
-      return s.replace(pattern.getKey(), pattern.getValue());
-    });
+    final StringBuilder escaped = new StringBuilder(str.length() + 16);
+    for (int i = 0; i < str.length(); i++) {
+      final String c = String.valueOf(str.charAt(i));
+      escaped.append(ElkGraphConversions.JSON_ESCAPES.getOrDefault(c, c));
+    }
+    return escaped.toString();
   }
 }
@@ -13,9 +13,10 @@ import org.eclipse.sprotty.IDiagramServer;
 import org.eclipse.sprotty.xtext.DefaultDiagramModule;
 import org.eclipse.sprotty.xtext.IDiagramGenerator;
 import org.eclipse.sprotty.xtext.IDiagramServerFactory;
+import org.eclipse.xtext.resource.XtextResource;
 
 /**
- * Guice's bindings for the ELK diagram server.
+ * Guice's bindings for the ELK diagram server, mixed into the injector of the ELK Graph text language.
  */
 public class ElkGraphDiagramModule extends DefaultDiagramModule {
   public Class<? extends IDiagramGenerator> bindIDiagramGenerator() {
@@ -31,4 +32,8 @@ public class ElkGraphDiagramModule extends DefaultDiagramModule {
   public Class<? extends IDiagramServer> bindIDiagramServer() {
     return ElkDiagramServer.class;
   }
+
+  public Class<? extends XtextResource> bindXtextResource() {
+    return ElkGraphTextResource.class;
+  }
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * Java Flight Recorder events for parsing the editor's text and for the stages of the diagram generation,
+ * the layout versions and the conversions. An event is committed with the size of the graph it concerns,
+ * which is only counted if the event is enabled, hence the events are cheap enough to be recorded
+ * continuously, e.g. with {@code -XX:StartFlightRecording:maxage=1h,filename=elkgraph.jfr}.
+ *
+ * <p>Usage: create the event, {@code begin()} it, run the stage and {@code end()} it, then call
+ * {@code commit(...)} with the graph. Stages that may fail or be canceled end and commit their event in a
+ * {@code finally} block, along with their outcome.</p>
+ */
+public final class ElkGraphEvents {
+  /** Outcomes of the {@link Layout} and {@link VersionLayout} events. */
+  static final String SUCCESS = "success";
+
+  static final String CANCELED = "canceled";
+
+  static final String TIMEOUT = "timeout";
+
+  static final String REJECTED = "rejected";
+
+  static final String FAILURE = "failure";
+
+  private ElkGraphEvents() {
+  }
+
+  /**
+   * A stage that processes a graph of a layout version or of a format.
+   */
+  @StackTrace(false)
+  abstract static class GraphEvent extends Event {
+    @Label("Layout Version")
+    String layoutVersion;
+
+    @Label("Format")
+    String format;
+
+    @Label("Nodes")
+    @Description("Number of nodes, not counting the root")
+    long nodes;
+
+    @Label("Edges")
+    long edges;
+
+    @Label("Ports")
+    long ports;
+
+    /**
+     * Commit this event with the size of the given graph if it is enabled and exceeds its threshold.
+     */
+    void commit(final String layoutVersion, final String format, final ElkNode graph) {
+      if (this.shouldCommit()) {
+        this.layoutVersion = layoutVersion;
+        this.format = format;
+        if (graph != null) {
+          this.nodes = ElkMetrics.countNodes(graph);
+          this.edges = ElkMetrics.countEdges(graph);
+          this.ports = ElkMetrics.countPorts(graph);
+        }
+        this.commit();
+      }
+    }
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Parse")
+  @Label("Text Parse")
+  @Description("Parsing the ELK Graph text of an editor and linking its cross-references")
+  @Category({ "ELK Graph", "Editor" })
+  static final class Parse extends GraphEvent {
+    @Label("Incremental")
+    @Description("Whether only the changed part of the text has been parsed again")
+    boolean incremental;
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Errors")
+    int errors;
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Copy")
+  @Label("Graph Copy")
+  @Description("Copying the edited graph before it is laid out")
+  @Category({ "ELK Graph", "Diagram" })
+  static final class Copy extends GraphEvent {
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.ApplyDefaults")
+  @Label("Apply Defaults")
+  @Description("Setting default sizes of nodes, ports and labels")
+  @Category({ "ELK Graph", "Diagram" })
+  static final class ApplyDefaults extends GraphEvent {
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Layout")
+  @Label("Layout")
+  @Description("Laying out the graph, including the time waiting for a layout thread")
+  @Category({ "ELK Graph", "Diagram" })
+  static final class Layout extends GraphEvent {
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Outcome")
+    String outcome;
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Transform")
+  @Label("Transform")
+  @Description("Transforming the laid out graph into a sprotty model")
+  @Category({ "ELK Graph", "Diagram" })
+  static final class Transform extends GraphEvent {
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.VersionSerialize")
+  @Label("Layout Version Serialization")
+  @Description("Serializing the graph to be passed to a layout version")
+  @Category({ "ELK Graph", "Layout Version" })
+  static final class VersionSerialize extends GraphEvent {
+    @Label("Bytes")
+    long bytes;
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.VersionLayout")
+  @Label("Layout Version Layout")
+  @Description("Deserializing and laying out the graphs inside a layout version")
+  @Category({ "ELK Graph", "Layout Version" })
+  static final class VersionLayout extends GraphEvent {
+    @Label("Graphs")
+    int graphs;
+
+    @Label("Outcome")
+    String outcome;
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.VersionApply")
+  @Label("Layout Version Result")
+  @Description("Applying the coordinates computed by a layout version to the graph")
+  @Category({ "ELK Graph", "Layout Version" })
+  static final class VersionApply extends GraphEvent {
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Load")
+  @Label("Graph Load")
+  @Description("Parsing a graph of the given format")
+  @Category({ "ELK Graph", "Conversion" })
+  static final class Load extends GraphEvent {
+  }
+
+  @Name("de.cau.cs.kieler.elkgraph.Save")
+  @Label("Graph Save")
+  @Description("Serializing a graph to the given format")
+  @Category({ "ELK Graph", "Conversion" })
+  static final class Save extends GraphEvent {
+  }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import de.cau.cs.kieler.elkgraph.web.version.ElkLayoutResult;
+import de.cau.cs.kieler.elkgraph.web.version.ParallelRecursiveGraphLayoutEngine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.elk.core.IGraphLayoutEngine;
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.core.UnsupportedConfigurationException;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * Lays out ELK graphs on the {@link ElkLayoutExecutor}, using either the snapshot the server has been
+ * built with or any version known to the {@link ElkLayoutVersionRegistry}, and in worker processes if the
+ * {@link ElkLayoutWorkerPool} is enabled. Layouts that take longer than {@code layoutTimeout} seconds
+ * (system property, default 5) are canceled.
+ *
+ * <p>Layouts can lay out independent subtrees of compound nodes concurrently using the
+ * {@link ParallelRecursiveGraphLayoutEngine}, which yields the same result as the sequential engine. Whether
+ * they do is selected per layout, defaulting to the system property {@code parallelLayout} (default
+ * false). Layouts in worker processes are always sequential.</p>
+ *
+ * <p>Also handles requests to the stateless {@code /layout} endpoint, which takes a graph in any of the
+ * formats supported by {@link ElkGraphConversions} and returns the laid out graph. Its parameters are the
+ * {@code inFormat}, the {@code outFormat} (default: the input format), the {@code layoutVersion} (default:
+ * snapshot), an optional {@code timeout} in seconds that may only shorten the server's timeout, and
+ * {@code parallel} to select the parallel layout engine.</p>
+ */
+public final class ElkGraphLayouts {
+  private static final Logger LOG = Logger.getLogger(ElkGraphLayouts.class.getName());
+
+  private static final int TIMEOUT_SECONDS = Math.max(1, Integer.getInteger("layoutTimeout", 5));
+
+  static final String FAILURE_LAYOUT = "layout";
+
+  private static final boolean PARALLEL = Boolean.getBoolean("parallelLayout");
+
+  static final IGraphLayoutEngine layoutEngine = new RecursiveGraphLayoutEngine();
+
+  static final IGraphLayoutEngine parallelLayoutEngine = new ParallelRecursiveGraphLayoutEngine();
+
+  private ElkGraphLayouts() {
+  }
+
+  public static int getTimeoutSeconds() {
+    return TIMEOUT_SECONDS;
+  }
+
+  /**
+   * @param value the requested choice, may be {@code null}.
+   * @return whether to use the parallel layout engine, which is the server's default unless requested
+   *         otherwise.
+   */
+  public static boolean isParallel(final String value) {
+    return value == null ? PARALLEL : Boolean.parseBoolean(value);
+  }
+
+  public static boolean isKnownVersion(final String layoutVersion) {
+    return Objects.equals(layoutVersion, "snapshot") || ElkLayoutVersionRegistry.isKnown(layoutVersion);
+  }
+
+  /**
+   * Lay out the given graph on the layout executor and wait for the result. Canceling the given monitor
+   * from another thread stops the layout.
+   *
+   * @return the laid out graph, which is the given graph itself unless a layout version wrapper is used.
+   * @throws RejectedExecutionException if the server is too busy to accept the layout.
+   * @throws TimeoutException if the layout did not finish in time, in which case it has been canceled.
+   * @throws CancellationException if the monitor has been canceled.
+   * @throws ExecutionException if the layout failed.
+   */
+  public static ElkNode layout(final ElkNode elkGraph, final String layoutVersion,
+          final CancellableProgressMonitor monitor, final long timeout, final TimeUnit unit)
+          throws TimeoutException, ExecutionException, InterruptedException {
+    return ElkGraphLayouts.layout(elkGraph, layoutVersion, PARALLEL, monitor, timeout, unit);
+  }
+
+  /**
+   * Lay out the given graph on the layout executor, optionally laying out independent subtrees
+   * concurrently.
+   *
+   * @see #layout(ElkNode, String, CancellableProgressMonitor, long, TimeUnit)
+   */
+  public static ElkNode layout(final ElkNode elkGraph, final String layoutVersion, final boolean parallel,
+          final CancellableProgressMonitor monitor, final long timeout, final TimeUnit unit)
+          throws TimeoutException, ExecutionException, InterruptedException {
+    final long start = System.nanoTime();
+    final Future<ElkNode> future = ElkLayoutExecutor.submit(monitor,
+            () -> ElkGraphLayouts.layoutNow(elkGraph, layoutVersion, parallel, monitor));
+    // A canceled layout may still be waiting in the queue or stop only at its next phase boundary
+    final Runnable cancelListener = () -> future.cancel(true);
+    monitor.onCancel(cancelListener);
+    try {
+      final ElkNode laidOutGraph = future.get(timeout, unit);
+      if (monitor.isCanceled()) {
+        // ELK returns normally when canceled, leaving the graph partially laid out
+        ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.CANCELED, 0);
+        throw new CancellationException("Layout canceled.");
+      }
+      ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.SUCCESS, System.nanoTime() - start);
+      return laidOutGraph;
+    } catch (TimeoutException e) {
+      ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.TIMEOUT, 0);
+      throw e;
+    } catch (ExecutionException e) {
+      if (monitor.isCanceled()) {
+        ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.CANCELED, 0);
+        throw new CancellationException("Layout canceled.");
+      }
+      ElkMetrics.recordLayout(layoutVersion, elkGraph, ElkMetrics.Outcome.FAILURE, 0);
+      throw e;
+    } finally {
+      monitor.removeCancelListener(cancelListener);
+      // ELK does not react to interrupts, the layout has to be stopped through its progress monitor
+      if (!future.isDone()) {
+        ElkLayoutExecutor.cancel(future, monitor);
+      }
+    }
+  }
+
+  /**
+   * Lay out the given graph on the calling thread.
+   */
+  static ElkNode layoutNow(final ElkNode elkGraph, final String layoutVersion, final boolean parallel,
+          final CancellableProgressMonitor monitor) throws Exception {
+    if (!ElkGraphLayouts.isKnownVersion(layoutVersion)) {
+      throw new UnsupportedConfigurationException("Unknown layouter version: " + layoutVersion + ".");
+    }
+    if (ElkLayoutWorkerPool.isEnabled()) {
+      final ElkLayoutResult result = ElkLayoutWorkerPool.layout(layoutVersion, elkGraph, monitor);
+      if (!result.isSuccess()) {
+        throw new RuntimeException(result.getErrorType() + ": " + result.getErrorMessage());
+      }
+      return elkGraph;
+    } else if (Objects.equals(layoutVersion, "snapshot")) {
+      (parallel ? ElkGraphLayouts.parallelLayoutEngine : ElkGraphLayouts.layoutEngine).layout(elkGraph, monitor);
+      return elkGraph;
+    } else {
+      final Optional<ElkNode> result = ElkLayoutVersionRegistry.getWrapper(layoutVersion)
+              .layout(elkGraph, monitor, parallel);
+      if (!result.isPresent()) {
+        if (!monitor.isCanceled()) {
+          ElkMetrics.recordWrapperFailure(layoutVersion);
+        }
+        throw new RuntimeException("Layout failed for version " + layoutVersion + ".");
+      }
+      return result.get();
+    }
+  }
+
+  /**
+   * - - - - - - - - - - - - - -
+   *   HTTP request handling
+   * - - - - - - - - - - - - - -
+   */
+  public static void handleRequest(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    final Optional<ElkGraphConversions.Error> errorOptional = ElkGraphLayouts.checkRequest(req);
+    if (errorOptional.isPresent()) {
+      ElkGraphConversions.sendResult(resp, errorOptional.get());
+      return;
+    }
+    final String inFormat = req.getParameter("inFormat");
+    final String outFormat = Objects.requireNonNullElse(req.getParameter("outFormat"), inFormat);
+    final String layoutVersion = Objects.requireNonNullElse(req.getParameter("layoutVersion"), "snapshot");
+    final boolean prettyPrint = !"false".equals(req.getParameter("pretty"));
+    final boolean parallel = ElkGraphLayouts.isParallel(req.getParameter("parallel"));
+    int timeout = ElkGraphLayouts.TIMEOUT_SECONDS;
+    if (req.getParameter("timeout") != null) {
+      try {
+        timeout = Math.max(1, Math.min(timeout, Integer.parseInt(req.getParameter("timeout"))));
+      } catch (NumberFormatException e) {
+        ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+                HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST,
+                "Invalid timeout: '" + req.getParameter("timeout") + "'."));
+        return;
+      }
+    }
+
+    final ElkNode elkGraph;
+    try (InputStream in = ElkGraphConversions.requestStream(req)) {
+      elkGraph = ElkGraphConversions.load(inFormat, in);
+    } catch (Exception e) {
+      ElkGraphLayouts.LOG.log(Level.INFO, "Failed to load input graph.", e);
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_INPUT,
+              "Failed to load input graph.", e));
+      return;
+    }
+
+    final ElkNode laidOutGraph;
+    try {
+      laidOutGraph = ElkGraphLayouts.layout(elkGraph, layoutVersion, parallel, new CancellableProgressMonitor(),
+              timeout, TimeUnit.SECONDS);
+    } catch (RejectedExecutionException e) {
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+              ElkGraphLayouts.FAILURE_LAYOUT,
+              e.getMessage()));
+      return;
+    } catch (TimeoutException e) {
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              HttpServletResponse.SC_GATEWAY_TIMEOUT,
+              ElkGraphLayouts.FAILURE_LAYOUT,
+              "Layout timed out after " + timeout + " seconds."));
+      return;
+    } catch (ExecutionException | CancellationException e) {
+      final Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      ElkGraphLayouts.LOG.log(Level.INFO, "Layout failed.", cause);
+      ElkGraphConversions.sendResult(resp, new ElkGraphConversions.Error(
+              cause instanceof UnsupportedConfigurationException
+                      ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              ElkGraphLayouts.FAILURE_LAYOUT,
+              "Layout failed.", cause));
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Layout interrupted.", e);
+    }
+    ElkGraphConversions.sendGraph(req, resp, laidOutGraph, outFormat, prettyPrint);
+  }
+
+  private static Optional<ElkGraphConversions.Error> checkRequest(final HttpServletRequest req) {
+    final String inFormat = req.getParameter("inFormat");
+    if (inFormat == null) {
+      return Optional.of(new ElkGraphConversions.Error(
+              HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Missing specification of 'inFormat'."));
+    }
+    for (final String format : new String[] { inFormat, req.getParameter("outFormat") }) {
+      if (format != null && !ElkGraphConversions.KNOWN_FORMATS.contains(format)) {
+        return Optional.of(new ElkGraphConversions.Error(
+                HttpServletResponse.SC_BAD_REQUEST,
+                ElkGraphConversions.FAILURE_REQUEST,
+                "Unknown graph format '" + format + "'."));
+      }
+    }
+    final String layoutVersion = req.getParameter("layoutVersion");
+    if (layoutVersion != null && !ElkGraphLayouts.isKnownVersion(layoutVersion)) {
+      return Optional.of(new ElkGraphConversions.Error(
+              HttpServletResponse.SC_BAD_REQUEST,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Unknown layouter version: '" + layoutVersion + "'."));
+    }
+    final String contentEncoding = req.getHeader("Content-Encoding");
+    if (contentEncoding != null && !contentEncoding.equalsIgnoreCase("gzip")
+            && !contentEncoding.equalsIgnoreCase("identity")) {
+      return Optional.of(new ElkGraphConversions.Error(
+              HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+              ElkGraphConversions.FAILURE_REQUEST,
+              "Unsupported content encoding: '" + contentEncoding + "'."));
+    }
+    return Optional.empty();
+  }
+}
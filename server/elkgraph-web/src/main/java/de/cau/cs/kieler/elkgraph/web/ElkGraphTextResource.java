@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.xtext.linking.lazy.LazyLinkingResource;
+
+/**
+ * Resource of the ELK Graph text language that records parsing the editor's text, both when it is loaded
+ * and when it is updated incrementally, as {@link ElkGraphEvents.Parse} events.
+ */
+public class ElkGraphTextResource extends LazyLinkingResource {
+  @Override
+  protected void doLoad(final InputStream inputStream, final Map<?, ?> options) throws IOException {
+    final ElkGraphEvents.Parse event = new ElkGraphEvents.Parse();
+    event.begin();
+    try {
+      super.doLoad(inputStream, options);
+    } finally {
+      this.commit(event);
+    }
+  }
+
+  @Override
+  public void update(final int offset, final int replacedTextLength, final String newText) {
+    final ElkGraphEvents.Parse event = new ElkGraphEvents.Parse();
+    event.incremental = true;
+    event.begin();
+    try {
+      super.update(offset, replacedTextLength, newText);
+    } finally {
+      this.commit(event);
+    }
+  }
+
+  private void commit(final ElkGraphEvents.Parse event) {
+    event.end();
+    if (event.shouldCommit()) {
+      if (this.getParseResult() != null && this.getParseResult().getRootNode() != null) {
+        event.characters = this.getParseResult().getRootNode().getLength();
+        event.errors = this.getErrors().size();
+      }
+      final ElkNode graph = !this.getContents().isEmpty() && this.getContents().get(0) instanceof ElkNode
+              ? (ElkNode) this.getContents().get(0) : null;
+      event.commit(null, "elkt", graph);
+    }
+  }
+}
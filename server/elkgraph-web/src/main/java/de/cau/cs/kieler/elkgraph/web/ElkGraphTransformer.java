@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import org.eclipse.elk.core.math.KVector;
+import org.eclipse.elk.core.math.KVectorChain;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.sprotty.BoundsAware;
+import org.eclipse.sprotty.Dimension;
+import org.eclipse.sprotty.Point;
+import org.eclipse.sprotty.SEdge;
+import org.eclipse.sprotty.SGraph;
+import org.eclipse.sprotty.SLabel;
+import org.eclipse.sprotty.SModelElement;
+import org.eclipse.sprotty.SNode;
+import org.eclipse.sprotty.SPort;
+
+/**
+ * Transforms laid out ELK graphs into sprotty models. The id of an element is the id of its container, a
+ * dot, and its identifier, or the name of its containing feature and its index therein if it has none.
+ * Since edges may refer to nodes and ports anywhere in the graph, the ids of all nodes and ports are
+ * computed in a first traversal. The second traversal creates the sprotty elements. Subtrees with at least
+ * {@code transformParallelThreshold} elements (system property, default 5000) are transformed in parallel
+ * on the common fork/join pool.
+ */
+public final class ElkGraphTransformer {
+  private static final int PARALLEL_THRESHOLD = Math.max(1, Integer.getInteger("transformParallelThreshold", 5000));
+
+  private final Map<ElkConnectableShape, String> shapeIds = new HashMap<>();
+
+  /** Nodes whose subtrees are large enough to be transformed in parallel. */
+  private final Set<ElkNode> largeSubtrees = new HashSet<>();
+
+  private ElkGraphTransformer() {
+  }
+
+  /**
+   * Transform the given graph, which must not be modified concurrently.
+   */
+  public static SGraph transform(final ElkNode graph) {
+    final ElkGraphTransformer transformer = new ElkGraphTransformer();
+    final String id = graph.getIdentifier() != null ? graph.getIdentifier() : "graph";
+    transformer.assignIds(graph, id);
+
+    final SGraph sgraph = new SGraph();
+    sgraph.setType("graph");
+    sgraph.setId(id);
+    final ContentTask task = transformer.new ContentTask(graph, sgraph, id);
+    if (transformer.largeSubtrees.contains(graph)) {
+      ForkJoinPool.commonPool().invoke(task);
+    } else {
+      task.compute();
+    }
+    return sgraph;
+  }
+
+  /**
+   * Assign ids to the given node, its ports, and all its descendants.
+   *
+   * @return the number of elements in the subtree of the given node.
+   */
+  private int assignIds(final ElkNode node, final String id) {
+    this.shapeIds.put(node, id);
+    int size = 1 + node.getLabels().size() + node.getContainedEdges().size();
+    final List<ElkPort> ports = node.getPorts();
+    for (int i = 0; i < ports.size(); i++) {
+      this.shapeIds.put(ports.get(i), childId(id, ports.get(i), "ports", i));
+      size += 1 + ports.get(i).getLabels().size();
+    }
+    final List<ElkNode> children = node.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      size += this.assignIds(children.get(i), childId(id, children.get(i), "children", i));
+    }
+    if (size >= PARALLEL_THRESHOLD) {
+      this.largeSubtrees.add(node);
+    }
+    return size;
+  }
+
+  private static String childId(final String containerId, final ElkGraphElement element, final String feature,
+          final int index) {
+    final String identifier = element.getIdentifier();
+    return containerId + "." + (identifier != null ? identifier : feature + "#" + index);
+  }
+
+  private String getShapeId(final ElkConnectableShape shape) {
+    final String id = this.shapeIds.get(shape);
+    return id != null ? id : computeId(shape);
+  }
+
+  /**
+   * Compute the id of an element that is not part of the transformed graph by walking up to its root.
+   */
+  private static String computeId(final ElkGraphElement element) {
+    final EObject container = element.eContainer();
+    if (container instanceof ElkGraphElement) {
+      final EStructuralFeature feature = element.eContainingFeature();
+      final List<?> list = (List<?>) container.eGet(feature);
+      return childId(computeId((ElkGraphElement) container), element, feature.getName(), list.indexOf(element));
+    }
+    return element.getIdentifier() != null ? element.getIdentifier() : "graph";
+  }
+
+  /**
+   * Transforms the content of a node, i.e. its ports, children and contained edges. Labels of a node are
+   * transformed along with the node itself.
+   */
+  private final class ContentTask extends RecursiveAction {
+    private final ElkNode parent;
+
+    private final SModelElement container;
+
+    private final String containerId;
+
+    private ContentTask(final ElkNode parent, final SModelElement container, final String containerId) {
+      this.parent = parent;
+      this.container = container;
+      this.containerId = containerId;
+    }
+
+    @Override
+    protected void compute() {
+      final List<ForkJoinTask<Void>> subtasks = new ArrayList<>();
+      final List<SModelElement> children = childList(this.container,
+              this.parent.getPorts().size() + this.parent.getChildren().size() + countEdges(this.parent));
+      for (final ElkPort elkPort : this.parent.getPorts()) {
+        final SPort sport = new SPort();
+        sport.setType("port");
+        sport.setId(ElkGraphTransformer.this.shapeIds.get(elkPort));
+        transferBounds(elkPort, sport);
+        children.add(sport);
+        processLabels(elkPort, sport, sport.getId(), 0);
+      }
+      for (final ElkNode elkNode : this.parent.getChildren()) {
+        final SNode snode = new SNode();
+        snode.setType("node");
+        snode.setId(ElkGraphTransformer.this.shapeIds.get(elkNode));
+        transferBounds(elkNode, snode);
+        children.add(snode);
+        processLabels(elkNode, snode, snode.getId(), elkNode.getPorts().size() + elkNode.getChildren().size()
+                + countEdges(elkNode));
+        final ContentTask task = new ContentTask(elkNode, snode, snode.getId());
+        if (ElkGraphTransformer.this.largeSubtrees.contains(elkNode)) {
+          subtasks.add(task.fork());
+        } else {
+          task.compute();
+        }
+      }
+      final List<ElkEdge> edges = this.parent.getContainedEdges();
+      for (int i = 0; i < edges.size(); i++) {
+        final ElkEdge elkEdge = edges.get(i);
+        final String edgeId = childId(this.containerId, elkEdge, "containedEdges", i);
+        if (elkEdge.getSources().size() == 1 && elkEdge.getTargets().size() == 1) {
+          children.add(this.createEdge(elkEdge, edgeId, edgeId, elkEdge.getSources().get(0),
+                  elkEdge.getTargets().get(0)));
+        } else {
+          for (final ElkConnectableShape source : elkEdge.getSources()) {
+            for (final ElkConnectableShape target : elkEdge.getTargets()) {
+              final String id = edgeId + "_" + getShapeId(source) + "_" + getShapeId(target);
+              children.add(this.createEdge(elkEdge, edgeId, id, source, target));
+            }
+          }
+        }
+      }
+      for (final ForkJoinTask<Void> subtask : subtasks) {
+        subtask.join();
+      }
+    }
+
+    private SEdge createEdge(final ElkEdge elkEdge, final String edgeId, final String id,
+            final ElkConnectableShape source, final ElkConnectableShape target) {
+      final SEdge sedge = new SEdge();
+      sedge.setType("edge");
+      sedge.setId(id);
+      sedge.setSourceId(getShapeId(source));
+      sedge.setTargetId(getShapeId(target));
+      transferEdgeLayout(elkEdge, edgeId, sedge);
+      return sedge;
+    }
+  }
+
+  /**
+   * Transform all labels of the given graph element and reserve space for the given number of other
+   * children of the sprotty element.
+   */
+  private static void processLabels(final ElkGraphElement element, final SModelElement container,
+          final String containerId, final int otherChildren) {
+    final List<ElkLabel> labels = element.getLabels();
+    if (labels.isEmpty()) {
+      return;
+    }
+    final List<SModelElement> children = childList(container, labels.size() + otherChildren);
+    for (int i = 0; i < labels.size(); i++) {
+      final ElkLabel elkLabel = labels.get(i);
+      final SLabel slabel = new SLabel();
+      slabel.setType("label");
+      slabel.setId(childId(containerId, elkLabel, "labels", i));
+      slabel.setText(elkLabel.getText());
+      transferBounds(elkLabel, slabel);
+      children.add(slabel);
+      processLabels(elkLabel, slabel, slabel.getId(), 0);
+    }
+  }
+
+  /**
+   * @return the children of the given sprotty element, which are created with the given capacity if the
+   *         element has none yet, or {@code null} if there are no children to add.
+   */
+  private static List<SModelElement> childList(final SModelElement container, final int capacity) {
+    if (container.getChildren() == null && capacity > 0) {
+      container.setChildren(new ArrayList<>(capacity));
+    }
+    return container.getChildren();
+  }
+
+  /**
+   * @return the number of sprotty edges the contained edges of the given node are transformed into.
+   */
+  private static int countEdges(final ElkNode node) {
+    int count = 0;
+    for (final ElkEdge edge : node.getContainedEdges()) {
+      if (edge.getSources().size() == 1 && edge.getTargets().size() == 1) {
+        count++;
+      } else {
+        count += edge.getSources().size() * edge.getTargets().size();
+      }
+    }
+    return count;
+  }
+
+  private static void transferBounds(final ElkShape shape, final BoundsAware bounds) {
+    bounds.setPosition(new Point(shape.getX(), shape.getY()));
+    if (shape.getWidth() > 0 || shape.getHeight() > 0) {
+      bounds.setSize(new Dimension(shape.getWidth(), shape.getHeight()));
+    }
+  }
+
+  private static void transferEdgeLayout(final ElkEdge elkEdge, final String edgeId, final SEdge sEdge) {
+    int points = 0;
+    for (final ElkEdgeSection section : elkEdge.getSections()) {
+      points += 2 + section.getBendPoints().size();
+    }
+    final List<Point> routingPoints = new ArrayList<>(points);
+    for (final ElkEdgeSection section : elkEdge.getSections()) {
+      routingPoints.add(new Point(section.getStartX(), section.getStartY()));
+      for (final ElkBendPoint bendPoint : section.getBendPoints()) {
+        routingPoints.add(new Point(bendPoint.getX(), bendPoint.getY()));
+      }
+      routingPoints.add(new Point(section.getEndX(), section.getEndY()));
+    }
+    sEdge.setRoutingPoints(routingPoints);
+    final KVectorChain junctionPoints = elkEdge.getProperty(CoreOptions.JUNCTION_POINTS);
+    final List<SModelElement> children = childList(sEdge, junctionPoints.size() + elkEdge.getLabels().size());
+    int index = 0;
+    for (final KVector point : junctionPoints) {
+      final SNode sJunction = new SNode();
+      sJunction.setType("junction");
+      sJunction.setId(edgeId + "_j" + index);
+      sJunction.setPosition(new Point(point.x, point.y));
+      children.add(sJunction);
+      index++;
+    }
+    processLabels(elkEdge, sEdge, edgeId, 0);
+  }
+}
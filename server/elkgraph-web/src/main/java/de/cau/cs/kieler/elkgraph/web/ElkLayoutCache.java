@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Logger;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.properties.IProperty;
+
+/**
+ * Content-addressed cache of laid out graphs. Graphs are identified by a structural hash of their
+ * contents (identifiers, geometry, layout options and labels) and the requested layout version, hence
+ * edits that do not change the graph itself, e.g. changes of whitespace or comments, result in cache hits.
+ * The cache is bounded by the estimated memory footprint of the cached graphs, which can be configured
+ * using the system property {@code layoutCacheBytes}. The least recently used graphs are evicted first.
+ *
+ * <p>Cached graphs are shared between requests and must not be modified.</p>
+ */
+public final class ElkLayoutCache {
+  private static final Logger LOG = Logger.getLogger(ElkLayoutCache.class.getName());
+
+  private static final long MAX_BYTES = Long.getLong("layoutCacheBytes", 64L * 1024 * 1024);
+
+  private static final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static long bytes = 0;
+
+  private static long hits = 0;
+
+  private static long misses = 0;
+
+  private static long evictions = 0;
+
+  /**
+   * Identifies a graph to be laid out with a certain layout version.
+   */
+  public static final class Key {
+    private final HashCode hash;
+
+    private final String layoutVersion;
+
+    private final long estimatedBytes;
+
+    private Key(final HashCode hash, final String layoutVersion, final long estimatedBytes) {
+      this.hash = hash;
+      this.layoutVersion = layoutVersion;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key other))
+        return false;
+      return this.hash.equals(other.hash) && Objects.equals(this.layoutVersion, other.layoutVersion);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.hash.hashCode() + Objects.hashCode(this.layoutVersion);
+    }
+
+    @Override
+    public String toString() {
+      return this.layoutVersion + "/" + this.hash;
+    }
+  }
+
+  private static final class Entry {
+    private final ElkNode graph;
+
+    private final long bytes;
+
+    private Entry(final ElkNode graph, final long bytes) {
+      this.graph = graph;
+      this.bytes = bytes;
+    }
+  }
+
+  private ElkLayoutCache() {
+  }
+
+  public static boolean isEnabled() {
+    return MAX_BYTES > 0;
+  }
+
+  /**
+   * Compute the cache key of a graph that is about to be laid out. Default sizes must have been applied
+   * already since they are part of the layout input.
+   */
+  public static Key keyOf(final ElkNode graph, final String layoutVersion) {
+    final GraphHasher hasher = new GraphHasher();
+    hasher.node(graph);
+    hasher.edges();
+    return new Key(hasher.hasher.hash(), layoutVersion, hasher.estimatedBytes);
+  }
+
+  /**
+   * @return the laid out graph stored for the given key, if any.
+   */
+  public static synchronized Optional<ElkNode> get(final Key key) {
+    final Entry entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    return Optional.of(entry.graph);
+  }
+
+  /**
+   * Store a laid out graph. The graph must not be modified afterwards.
+   */
+  public static synchronized void put(final Key key, final ElkNode laidOutGraph) {
+    if (!isEnabled() || key.estimatedBytes > MAX_BYTES) {
+      return;
+    }
+    final Entry previous = entries.put(key, new Entry(laidOutGraph, key.estimatedBytes));
+    if (previous != null) {
+      bytes -= previous.bytes;
+    }
+    bytes += key.estimatedBytes;
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (bytes > MAX_BYTES && iterator.hasNext()) {
+      final Entry eldest = iterator.next();
+      iterator.remove();
+      bytes -= eldest.bytes;
+      evictions++;
+    }
+    LOG.fine(() -> "Layout cache: " + entries.size() + " graphs, ~" + bytes + " bytes, "
+            + hits + " hits, " + misses + " misses, " + evictions + " evictions.");
+  }
+
+  public static synchronized long getHits() {
+    return hits;
+  }
+
+  public static synchronized long getMisses() {
+    return misses;
+  }
+
+  public static synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public static synchronized int getEntries() {
+    return entries.size();
+  }
+
+  public static synchronized long getEstimatedBytes() {
+    return bytes;
+  }
+
+  public static long getMaxBytes() {
+    return MAX_BYTES;
+  }
+
+  /**
+   * Feeds the layout-relevant contents of a graph into a hash function and estimates the memory required
+   * to keep the laid out graph. Edges are hashed last so that their end points can be referenced by their
+   * position in the traversal of the node hierarchy.
+   */
+  private static final class GraphHasher {
+    private final Hasher hasher = Hashing.sha256().newHasher();
+
+    private final Map<ElkConnectableShape, Integer> shapeIndices = new IdentityHashMap<>();
+
+    private final List<ElkEdge> edges = new ArrayList<>();
+
+    private long estimatedBytes = 0;
+
+    private void node(final ElkNode node) {
+      this.shapeIndices.put(node, this.shapeIndices.size());
+      this.hasher.putChar('N');
+      this.shape(node);
+      this.estimatedBytes += 400;
+      this.hasher.putInt(node.getPorts().size());
+      for (final ElkPort port : node.getPorts()) {
+        this.shapeIndices.put(port, this.shapeIndices.size());
+        this.hasher.putChar('P');
+        this.shape(port);
+        this.estimatedBytes += 300;
+      }
+      this.hasher.putInt(node.getChildren().size());
+      for (final ElkNode child : node.getChildren()) {
+        this.node(child);
+      }
+      this.edges.addAll(node.getContainedEdges());
+    }
+
+    private void edges() {
+      this.hasher.putInt(this.edges.size());
+      for (final ElkEdge edge : this.edges) {
+        this.hasher.putChar('E');
+        this.element(edge);
+        this.hasher.putInt(this.shapeIndices.getOrDefault(edge.getContainingNode(), -1));
+        this.endPoints(edge.getSources());
+        this.endPoints(edge.getTargets());
+        this.hasher.putInt(edge.getSections().size());
+        for (final ElkEdgeSection section : edge.getSections()) {
+          this.hasher.putDouble(section.getStartX()).putDouble(section.getStartY());
+          this.hasher.putDouble(section.getEndX()).putDouble(section.getEndY());
+          this.hasher.putInt(section.getBendPoints().size());
+          for (final ElkBendPoint bendPoint : section.getBendPoints()) {
+            this.hasher.putDouble(bendPoint.getX()).putDouble(bendPoint.getY());
+          }
+        }
+        // Laid out edges carry sections, bend points and junction points
+        this.estimatedBytes += 600;
+      }
+    }
+
+    private void endPoints(final List<ElkConnectableShape> shapes) {
+      this.hasher.putInt(shapes.size());
+      for (final ElkConnectableShape shape : shapes) {
+        this.hasher.putInt(this.shapeIndices.getOrDefault(shape, -1));
+      }
+    }
+
+    private void shape(final ElkShape shape) {
+      this.element(shape);
+      this.hasher.putDouble(shape.getX()).putDouble(shape.getY());
+      this.hasher.putDouble(shape.getWidth()).putDouble(shape.getHeight());
+    }
+
+    private void element(final ElkGraphElement element) {
+      this.string(element.getIdentifier());
+      this.hasher.putInt(element.getProperties().size());
+      for (final Map.Entry<IProperty<?>, Object> property : element.getProperties()) {
+        this.string(property.getKey().getId());
+        this.string(String.valueOf(property.getValue()));
+        this.estimatedBytes += 100;
+      }
+      this.hasher.putInt(element.getLabels().size());
+      for (final ElkLabel label : element.getLabels()) {
+        this.hasher.putChar('L');
+        this.string(label.getText());
+        this.shape(label);
+        this.estimatedBytes += 250 + (label.getText() != null ? 2L * label.getText().length() : 0);
+      }
+    }
+
+    private void string(final String string) {
+      if (string == null) {
+        this.hasher.putInt(-1);
+      } else {
+        this.hasher.putInt(string.length());
+        this.hasher.putString(string, StandardCharsets.UTF_8);
+      }
+    }
+  }
+}
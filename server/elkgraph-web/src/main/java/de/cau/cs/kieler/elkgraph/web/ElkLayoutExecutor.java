@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Server-wide executor that runs all layouts, no matter whether the snapshot or a concrete
+ * ELK version is used. The number of worker threads and the size of the waiting queue are bounded
+ * and can be configured using the system properties {@code layoutThreads} and {@code layoutQueueSize}.
+ * If both the workers and the queue are busy, new layouts are rejected right away.
+ *
+ * <p>Layouts that exceed their time budget are canceled through their {@link CancellableProgressMonitor}.
+ * Until ELK reaches the next phase boundary and returns, such a layout still occupies a worker thread
+ * and is counted as a zombie.</p>
+ */
+public final class ElkLayoutExecutor {
+  private static final Logger LOG = Logger.getLogger(ElkLayoutExecutor.class.getName());
+
+  private static final int THREADS = Math.max(1,
+          Integer.getInteger("layoutThreads", Runtime.getRuntime().availableProcessors()));
+
+  private static final int QUEUE_SIZE = Math.max(1, Integer.getInteger("layoutQueueSize", 4 * THREADS));
+
+  private static final AtomicInteger activeLayouts = new AtomicInteger();
+
+  private static final AtomicLong succeededLayouts = new AtomicLong();
+
+  private static final AtomicLong failedLayouts = new AtomicLong();
+
+  private static final AtomicLong rejectedLayouts = new AtomicLong();
+
+  private static final AtomicLong canceledLayouts = new AtomicLong();
+
+  private static final Set<CancellableProgressMonitor> runningMonitors = ConcurrentHashMap.newKeySet();
+
+  private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+          60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), new ThreadFactory() {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "elk-layout-" + count.incrementAndGet());
+      // Layout threads must never keep the server from shutting down
+      thread.setDaemon(true);
+      return thread;
+    }
+  }, new ThreadPoolExecutor.AbortPolicy());
+
+  static {
+    executor.allowCoreThreadTimeOut(true);
+    LOG.info("Layout executor uses " + THREADS + " threads and a queue of size " + QUEUE_SIZE + ".");
+  }
+
+  private ElkLayoutExecutor() {
+  }
+
+  /**
+   * Submit a layout task. The task is expected to pass the given monitor on to ELK. Each task that has been
+   * accepted is counted once it is done, as succeeded, failed or canceled. Tasks whose monitor has been
+   * canceled count as canceled no matter how they ended, since ELK returns normally when canceled.
+   *
+   * @throws RejectedExecutionException if the server is too busy to accept the layout.
+   */
+  public static <T> Future<T> submit(final CancellableProgressMonitor monitor, final Callable<T> layoutTask) {
+    final FutureTask<T> task = new FutureTask<T>(() -> {
+      activeLayouts.incrementAndGet();
+      runningMonitors.add(monitor);
+      try {
+        return layoutTask.call();
+      } finally {
+        runningMonitors.remove(monitor);
+        activeLayouts.decrementAndGet();
+      }
+    }) {
+      // Also called for tasks canceled while waiting in the queue, which are never run
+      @Override
+      protected void done() {
+        if (this.isCancelled() || monitor.isCanceled()) {
+          canceledLayouts.incrementAndGet();
+          return;
+        }
+        try {
+          this.get();
+          succeededLayouts.incrementAndGet();
+        } catch (ExecutionException | InterruptedException e) {
+          failedLayouts.incrementAndGet();
+        }
+      }
+    };
+    try {
+      executor.execute(task);
+      return task;
+    } catch (RejectedExecutionException e) {
+      rejectedLayouts.incrementAndGet();
+      throw new RejectedExecutionException("Server busy: " + activeLayouts.get() + " layouts running and "
+              + getQueueDepth() + " waiting. Please try again later.", e);
+    }
+  }
+
+  /**
+   * Cancel a layout that has been submitted using {@link #submit(CancellableProgressMonitor, Callable)}.
+   * A queued layout will not be started at all, a running one stops at the next phase boundary.
+   */
+  public static void cancel(final Future<?> future, final CancellableProgressMonitor monitor) {
+    monitor.cancel();
+    future.cancel(true);
+  }
+
+  public static int getThreads() {
+    return THREADS;
+  }
+
+  public static int getQueueCapacity() {
+    return QUEUE_SIZE;
+  }
+
+  public static int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public static int getActiveLayouts() {
+    return activeLayouts.get();
+  }
+
+  public static long getSucceededLayouts() {
+    return succeededLayouts.get();
+  }
+
+  public static long getFailedLayouts() {
+    return failedLayouts.get();
+  }
+
+  public static long getRejectedLayouts() {
+    return rejectedLayouts.get();
+  }
+
+  public static long getCanceledLayouts() {
+    return canceledLayouts.get();
+  }
+
+  /**
+   * @return the number of layouts that have been canceled but are still occupying a worker thread.
+   */
+  public static int getZombieLayouts() {
+    return (int) runningMonitors.stream().filter(CancellableProgressMonitor::isCanceled).count();
+  }
+}
@@ -12,48 +12,182 @@ package de.cau.cs.kieler.elkgraph.web;
 import org.eclipse.elk.core.util.persistence.ElkGraphResourceFactory;
 import org.eclipse.elk.graph.ElkGraphPackage;
 import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.xtext.xbase.lib.*;
-import org.eclipse.xtext.xbase.lib.Functions.Function0;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+/**
+ * Knows the jars of all available ELK layout versions, see the system property {@code elkJars}. A layout
+ * version is only loaded once it is requested for the first time. Versions that have not been used for the
+ * number of minutes given by the system property {@code layoutVersionIdleMinutes} (default 30, 0 disables
+ * unloading) are unloaded again by dropping their wrapper and closing its class loader.
+ */
 public final class ElkLayoutVersionRegistry {
   private static final Logger LOG = Logger.getLogger(ElkLayoutVersionRegistry.class.getName());
 
-  private static final Map<String, ElkLayoutVersionWrapper> versionToWrapper = new Function0<Map<String, ElkLayoutVersionWrapper>>() {
-    @Override
-    public Map<String, ElkLayoutVersionWrapper> apply() {
-      // Make sure the elkg xmi format is properly registered
-      Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("elkg", new ElkGraphResourceFactory());
-      ElkGraphPackage.eINSTANCE.eClass();
-
-      final String elkJars = System.getProperty("elkJars");
-      if (elkJars == null || elkJars.isEmpty()) {
-        ElkLayoutVersionRegistry.LOG.severe("Make sure the system property 'elkJars' is set properly.");
-        return CollectionLiterals.<String, ElkLayoutVersionWrapper>newImmutableMap();
-      }
-      // In here are strings in the form of taldfdhfdksfh/0.10.0-0.1.0
-      final String[] strings = System.getProperty("elkJars").split(",");
+  private static final long IDLE_MINUTES = Long.getLong("layoutVersionIdleMinutes", 30);
+
+  private static final Map<String, String> versionToJar = findJars();
+
+  private static final Map<String, ResidentVersion> residentVersions = new ConcurrentHashMap<>();
+
+  static {
+    // Make sure the elkg xmi format is properly registered
+    Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("elkg", new ElkGraphResourceFactory());
+    ElkGraphPackage.eINSTANCE.eClass();
+
+    if (IDLE_MINUTES > 0) {
+      final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        final Thread thread = new Thread(runnable, "elk-layout-version-evictor");
+        thread.setDaemon(true);
+        return thread;
+      });
+      evictor.scheduleWithFixedDelay(ElkLayoutVersionRegistry::unloadIdleVersions, 1, 1, TimeUnit.MINUTES);
+    }
+  }
+
+  private ElkLayoutVersionRegistry() {
+  }
+
+  private static Map<String, String> findJars() {
+    final String elkJars = System.getProperty("elkJars");
+    if (elkJars == null || elkJars.isEmpty()) {
+      ElkLayoutVersionRegistry.LOG.severe("Make sure the system property 'elkJars' is set properly.");
+      return Collections.emptyMap();
+    }
+    // In here are strings in the form of taldfdhfdksfh/0.10.0-0.1.0
+    final Map<String, String> ret = new LinkedHashMap<>();
+    for (final String jarPath : elkJars.split(",")) {
       // Get the version, e.g. 0.10.0 or 0.9.0.
-      final Map<String, ElkLayoutVersionWrapper> ret =
-              CollectionLiterals.<String, ElkLayoutVersionWrapper>newImmutableMap(((Pair<? extends String, ? extends ElkLayoutVersionWrapper>[]) Conversions.unwrapArray(ListExtensions.<String, Pair<String, ElkLayoutVersionWrapper>>map(((List<String>)Conversions.doWrapArray(strings)),
-                      (String jarPath) -> {
-                final String filePath = Paths.get(jarPath).getFileName().toString();
-                String substring = filePath.substring(0, filePath.lastIndexOf("-"));
-                ElkLayoutVersionWrapper elkLayoutVersionWrapper = new ElkLayoutVersionWrapper(jarPath);
-                return Pair.<String, ElkLayoutVersionWrapper>of(substring, elkLayoutVersionWrapper);
-              }), Pair.class)));
-      String _join = IterableExtensions.join(ret.keySet(), ", ");
-      String _plus = ("ELK layout versions found: " + _join);
-      ElkLayoutVersionRegistry.LOG.info(_plus);
-      return ret;
-    }
-  }.apply();
-
-  public static Map<String, ElkLayoutVersionWrapper> getVersionToWrapper() {
-    return ElkLayoutVersionRegistry.versionToWrapper;
+      final String filePath = Paths.get(jarPath).getFileName().toString();
+      ret.put(filePath.substring(0, filePath.lastIndexOf("-")), jarPath);
+    }
+    ElkLayoutVersionRegistry.LOG.info("ELK layout versions found: " + String.join(", ", ret.keySet()));
+    return Collections.unmodifiableMap(ret);
+  }
+
+  /**
+   * @return all layout versions that can be loaded, whether they are resident or not.
+   */
+  public static Set<String> getVersions() {
+    return versionToJar.keySet();
+  }
+
+  public static boolean isKnown(final String version) {
+    return versionToJar.containsKey(version);
+  }
+
+  /**
+   * @return the path of the jar of the given layout version, or {@code null} if the version is unknown.
+   */
+  public static String getJarPath(final String version) {
+    return versionToJar.get(version);
+  }
+
+  /**
+   * Retrieve the wrapper of a layout version, loading the version if it is not resident. Concurrent calls
+   * for the same version load it only once.
+   *
+   * @return the wrapper, or {@code null} if the version is unknown.
+   */
+  public static ElkLayoutVersionWrapper getWrapper(final String version) {
+    final String jarPath = versionToJar.get(version);
+    if (jarPath == null) {
+      return null;
+    }
+    return residentVersions.computeIfAbsent(version, (it) -> new ResidentVersion(it, jarPath)).acquire();
+  }
+
+  /**
+   * @return the currently loaded layout versions together with an estimate of the metaspace, in bytes,
+   *         that has been allocated when loading them. Only the classes needed to create the layouter are
+   *         covered. The classes of a layout algorithm are loaded by its first layout, concurrently with
+   *         other layouts, and are hence not measured.
+   */
+  public static Map<String, Long> getResidentVersions() {
+    final Map<String, Long> ret = new TreeMap<>();
+    for (final ResidentVersion resident : residentVersions.values()) {
+      final long bytes = resident.getEstimatedBytes();
+      if (bytes >= 0) {
+        ret.put(resident.version, bytes);
+      }
+    }
+    return ret;
+  }
+
+  private static void unloadIdleVersions() {
+    final long idleNanos = TimeUnit.MINUTES.toNanos(IDLE_MINUTES);
+    for (final ResidentVersion resident : residentVersions.values()) {
+      resident.unloadIfIdle(idleNanos);
+    }
+  }
+
+  private static long getMetaspaceUsed() {
+    long used = 0;
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.NON_HEAP && pool.getName().contains("Metaspace")) {
+        used += pool.getUsage().getUsed();
+      }
+    }
+    return used;
+  }
+
+  /**
+   * Holds the wrapper of a layout version while the version is loaded.
+   */
+  private static final class ResidentVersion {
+    private final String version;
+
+    private final String jarPath;
+
+    private ElkLayoutVersionWrapper wrapper;
+
+    private long estimatedBytes = -1;
+
+    private ResidentVersion(final String version, final String jarPath) {
+      this.version = version;
+      this.jarPath = jarPath;
+    }
+
+    private synchronized ElkLayoutVersionWrapper acquire() {
+      if (this.wrapper == null) {
+        final long start = System.nanoTime();
+        final long metaspaceBefore = getMetaspaceUsed();
+        this.wrapper = new ElkLayoutVersionWrapper(this.version, this.jarPath);
+        // Concurrent class loading elsewhere distorts this value, hence it is only an estimate
+        this.estimatedBytes = Math.max(0, getMetaspaceUsed() - metaspaceBefore);
+        ElkLayoutVersionRegistry.LOG.info("Loaded ELK layout version " + this.version + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (~"
+                + (this.estimatedBytes >> 20) + " MiB metaspace, without layout algorithms).");
+      }
+      this.wrapper.touch();
+      return this.wrapper;
+    }
+
+    private synchronized void unloadIfIdle(final long idleNanos) {
+      if (this.wrapper != null && this.wrapper.isIdle(idleNanos)) {
+        this.wrapper.close();
+        this.wrapper = null;
+        this.estimatedBytes = -1;
+        ElkLayoutVersionRegistry.LOG.info("Unloaded ELK layout version " + this.version + " after "
+                + IDLE_MINUTES + " idle minutes.");
+      }
+    }
+
+    private synchronized long getEstimatedBytes() {
+      return this.estimatedBytes;
+    }
   }
 }
@@ -9,92 +9,261 @@
  */
 package de.cau.cs.kieler.elkgraph.web;
 
+import de.cau.cs.kieler.elkgraph.web.version.ElkGraphBinary;
+import de.cau.cs.kieler.elkgraph.web.version.ElkGraphGeometry;
+import de.cau.cs.kieler.elkgraph.web.version.ElkLayoutResult;
+import de.cau.cs.kieler.elkgraph.web.version.IElkLayoutVersion;
 import org.eclipse.elk.graph.ElkNode;
-import org.eclipse.emf.common.util.URI;
-import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.emf.ecore.resource.URIConverter;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ElkLayoutVersionWrapper {
   private static final Logger LOG = Logger.getLogger(ElkLayoutVersionWrapper.class.getName());
 
-  private final Method LAYOUT_METHOD;
+  /**
+   * Classes that are loaded by the server's class loader and shared with the layout versions. They
+   * must only depend on JDK types.
+   */
+  private static final Set<String> CONTRACT_CLASSES = Set.of(
+          IElkLayoutVersion.class.getName(), ElkLayoutResult.class.getName());
 
-  private final Object LAYOUTER_INSTANCE;
+  private final String version;
 
-  public ElkLayoutVersionWrapper(final String jarPath) {
-    Method layoutMethod = null;
-    Object layouterInstance = null;
+  private final URLClassLoader CLASS_LOADER;
+
+  private final IElkLayoutVersion LAYOUTER;
+
+  /** Number of layouts currently running in this layout version. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private volatile long lastUsed = System.nanoTime();
+
+  public ElkLayoutVersionWrapper(final String version, final String jarPath) {
+    this.version = version;
+    URLClassLoader classLoader = null;
+    IElkLayoutVersion layouter = null;
     try {
-      // Note that the parent class loader is explicitly set to 'null'
-      final URLClassLoader classLoader = new URLClassLoader(new URL[] { new File(jarPath).toURI().toURL() }, null);
+      classLoader = new LayoutVersionClassLoader(new URL[] { new File(jarPath).toURI().toURL() });
       final Class<?> clazz = classLoader.loadClass("de.cau.cs.kieler.elkgraph.web.version.ElkLayoutVersion");
-      layoutMethod = clazz.getMethod("layout", String.class);
-      layouterInstance = clazz.getDeclaredConstructor().newInstance();
+      layouter = clazz.asSubclass(IElkLayoutVersion.class).getDeclaredConstructor().newInstance();
     } catch (final Throwable t) {
       ElkLayoutVersionWrapper.LOG.log(Level.WARNING, (("Failed to instantiate layout wrapper for " + jarPath) + "."), t);
-      layoutMethod = null;
-      layouterInstance = null;
+      layouter = null;
     }
-    this.LAYOUT_METHOD = layoutMethod;
-    this.LAYOUTER_INSTANCE = layouterInstance;
+    this.CLASS_LOADER = classLoader;
+    this.LAYOUTER = layouter;
+  }
+
+  /**
+   * Lay out the given graph using this wrapper's ELK version. The layout stops at the next phase
+   * boundary once the given monitor has been canceled. Only the computed coordinates are transferred
+   * back and applied to the given graph, which is then returned.
+   *
+   * @return the laid out graph, or an empty optional if the layout has been canceled.
+   */
+  public Optional<ElkNode> layout(final ElkNode graph, final CancellableProgressMonitor monitor) {
+    return this.layout(graph, monitor, false);
   }
 
-  public Optional<ElkNode> layout(final ElkNode graph) {
-    if ((this.LAYOUTER_INSTANCE == null) || (this.LAYOUT_METHOD == null)) {
+  /**
+   * Lay out the given graph, optionally laying out independent subtrees concurrently. The result is the
+   * same either way.
+   *
+   * @see #layout(ElkNode, CancellableProgressMonitor)
+   */
+  public Optional<ElkNode> layout(final ElkNode graph, final CancellableProgressMonitor monitor,
+          final boolean parallel) {
+    if (this.LAYOUTER == null) {
       return Optional.<ElkNode>empty();
     }
-    return this.serialize(graph).map((it) -> {
+    final BooleanSupplier isCanceled = monitor::isCanceled;
+    this.inFlight.incrementAndGet();
+    try {
+      final Optional<byte[]> binaryGraph = this.serializeBinary(graph);
+      if (!binaryGraph.isPresent()) {
+        return Optional.<ElkNode>empty();
+      }
+      final ElkGraphEvents.VersionLayout event = new ElkGraphEvents.VersionLayout();
+      event.graphs = 1;
+      event.outcome = ElkGraphEvents.FAILURE;
+      event.begin();
+      final double[] geometry;
       try {
-        return (String) this.LAYOUT_METHOD.invoke(this.LAYOUTER_INSTANCE, it);
-      } catch (InvocationTargetException | IllegalAccessException e) {
-        // TODO pass to caller
-        LOG.log(Level.WARNING, "", e);
-        return null; // translates into Optional.empty
+        geometry = this.LAYOUTER.layoutGeometry(binaryGraph.get(), isCanceled, parallel);
+        event.outcome = geometry != null ? ElkGraphEvents.SUCCESS
+                : monitor.isCanceled() ? ElkGraphEvents.CANCELED : ElkGraphEvents.FAILURE;
+      } finally {
+        event.end();
+        event.commit(this.version, null, graph);
       }
-    }).flatMap(this::deserialize);
+      return geometry == null ? Optional.<ElkNode>empty() : this.applyGeometry(geometry, graph);
+    } finally {
+      this.release();
+    }
+  }
+
+  /**
+   * Lay out many graphs with a single call into this wrapper's ELK version. The computed coordinates are
+   * applied to the graphs that have been laid out successfully.
+   *
+   * @return one result per graph, in the order of the given graphs.
+   */
+  public List<ElkLayoutResult> layout(final List<ElkNode> graphs, final CancellableProgressMonitor monitor) {
+    return this.layout(graphs, monitor, false);
   }
 
-  protected Optional<String> serialize(final ElkNode laidOutGraph) {
-    // We need to put the graph into a new (xmi) resource since
-    // it currently resides in an xtext resource which wouldn't
-    // yield the serialized output we desire.
-    final ResourceSetImpl rs = new ResourceSetImpl();
-    final Resource xmiR = rs.createResource(URI.createURI("dummy.elkg"));
-    xmiR.getContents().add(laidOutGraph);
-    final StringWriter sw = new StringWriter();
-    final URIConverter.WriteableOutputStream os = new URIConverter.WriteableOutputStream(sw, "UTF-8");
+  /**
+   * Lay out many graphs, optionally laying out independent subtrees of each graph concurrently.
+   *
+   * @see #layout(List, CancellableProgressMonitor)
+   */
+  public List<ElkLayoutResult> layout(final List<ElkNode> graphs, final CancellableProgressMonitor monitor,
+          final boolean parallel) {
+    if (this.LAYOUTER == null) {
+      throw new IllegalStateException("The layout version could not be loaded.");
+    }
+    final byte[][] binaryGraphs = new byte[graphs.size()][];
+    for (int i = 0; i < binaryGraphs.length; i++) {
+      binaryGraphs[i] = this.serializeBinary(graphs.get(i)).orElse(null);
+    }
+    final ElkLayoutResult[] results;
+    final ElkGraphEvents.VersionLayout event = new ElkGraphEvents.VersionLayout();
+    event.graphs = graphs.size();
+    event.outcome = ElkGraphEvents.FAILURE;
+    this.inFlight.incrementAndGet();
     try {
-      xmiR.save(os, null);
-      return Optional.of(sw.toString());
-    } catch (IOException e) {
-      ElkLayoutVersionWrapper.LOG.log(Level.WARNING, "elkg serialization failed (for layout wrapper).", e);
+      event.begin();
+      results = this.LAYOUTER.layoutGeometries(binaryGraphs, monitor::isCanceled, parallel);
+      event.outcome = monitor.isCanceled() ? ElkGraphEvents.CANCELED
+              : Arrays.stream(results).allMatch(ElkLayoutResult::isSuccess) ? ElkGraphEvents.SUCCESS
+              : ElkGraphEvents.FAILURE;
+    } finally {
+      event.end();
+      event.commit(this.version, null, graphs.size() == 1 ? graphs.get(0) : null);
+      this.release();
+    }
+    final List<ElkLayoutResult> ret = new ArrayList<>(results.length);
+    for (int i = 0; i < results.length; i++) {
+      ElkLayoutResult result = results[i];
+      if (result.isSuccess()) {
+        final ElkGraphEvents.VersionApply applyEvent = new ElkGraphEvents.VersionApply();
+        applyEvent.begin();
+        try {
+          ElkGraphGeometry.apply(result.getGeometry(), graphs.get(i));
+        } catch (IllegalArgumentException e) {
+          result = ElkLayoutResult.failure(e, result.getDurationNanos());
+        }
+        applyEvent.end();
+        applyEvent.commit(this.version, null, graphs.get(i));
+      }
+      ret.add(result);
+    }
+    return ret;
+  }
+
+  public boolean isLoaded() {
+    return this.LAYOUTER != null;
+  }
+
+  /**
+   * @return the layout version itself, which is called without transferring the graph, or {@code null} if
+   *         it could not be loaded.
+   */
+  IElkLayoutVersion getLayouter() {
+    return this.LAYOUTER;
+  }
+
+  /**
+   * Mark this layout version as being used right now.
+   */
+  public void touch() {
+    this.lastUsed = System.nanoTime();
+  }
+
+  /**
+   * @return whether no layout is running and this layout version has not been used for the given time.
+   */
+  public boolean isIdle(final long idleNanos) {
+    return this.inFlight.get() == 0 && System.nanoTime() - this.lastUsed > idleNanos;
+  }
+
+  /**
+   * Release the class loader of this layout version. The wrapper must not be used afterwards.
+   */
+  public void close() {
+    if (this.CLASS_LOADER != null) {
+      try {
+        this.CLASS_LOADER.close();
+      } catch (IOException e) {
+        ElkLayoutVersionWrapper.LOG.log(Level.WARNING, "Failed to close the class loader of a layout version.", e);
+      }
+    }
+  }
+
+  private void release() {
+    this.touch();
+    this.inFlight.decrementAndGet();
+  }
+
+  protected Optional<ElkNode> applyGeometry(final double[] geometry, final ElkNode graph) {
+    final ElkGraphEvents.VersionApply event = new ElkGraphEvents.VersionApply();
+    event.begin();
+    try {
+      ElkGraphGeometry.apply(geometry, graph);
+      return Optional.of(graph);
+    } catch (IllegalArgumentException e) {
+      ElkLayoutVersionWrapper.LOG.log(Level.WARNING, "Applying the layout result failed (for layout wrapper).", e);
+    } finally {
+      event.end();
+      event.commit(this.version, null, graph);
     }
     return Optional.empty();
   }
 
-  protected Optional<ElkNode> deserialize(final String serializedGraph) {
-    final ResourceSetImpl rs = new ResourceSetImpl();
-    final Resource r = rs.createResource(URI.createURI("dummy.elkg"));
+  protected Optional<byte[]> serializeBinary(final ElkNode graph) {
+    final ElkGraphEvents.VersionSerialize event = new ElkGraphEvents.VersionSerialize();
+    event.begin();
     try {
-      r.load(new URIConverter.ReadableInputStream(serializedGraph), null);
-      if (!r.getContents().isEmpty()) {
-        return Optional.of(((ElkNode) r.getContents().get(0)));
-      }
+      final byte[] bytes = ElkGraphBinary.toBytes(graph);
+      event.bytes = bytes.length;
+      return Optional.of(bytes);
     } catch (IOException e) {
-      ElkLayoutVersionWrapper.LOG.log(Level.WARNING, "elkg deserialization failed (for layout wrapper).", e);
+      ElkLayoutVersionWrapper.LOG.log(Level.WARNING, "Binary graph serialization failed (for layout wrapper).", e);
+    } finally {
+      event.end();
+      event.commit(this.version, null, graph);
     }
     return Optional.empty();
   }
+
+  /**
+   * Isolates a layout version from the server and all other layout versions, except for the
+   * {@link #CONTRACT_CLASSES}, which are delegated to the server's class loader. Note that the parent
+   * class loader is explicitly set to 'null'.
+   */
+  private static final class LayoutVersionClassLoader extends URLClassLoader {
+    private LayoutVersionClassLoader(final URL[] urls) {
+      super(urls, null);
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+      if (CONTRACT_CLASSES.contains(name)) {
+        return IElkLayoutVersion.class.getClassLoader().loadClass(name);
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
 }
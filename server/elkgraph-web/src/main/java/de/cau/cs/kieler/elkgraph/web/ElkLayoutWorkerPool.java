@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import de.cau.cs.kieler.elkgraph.web.version.ElkGraphBinary;
+import de.cau.cs.kieler.elkgraph.web.version.ElkGraphGeometry;
+import de.cau.cs.kieler.elkgraph.web.version.ElkLayoutResult;
+import de.cau.cs.kieler.elkgraph.web.version.ElkLayoutWorker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.elk.graph.ElkNode;
+
+/**
+ * Optionally runs layouts in child JVMs instead of the server's JVM. Each worker process has its own heap,
+ * hence a pathological graph cannot exhaust the server's heap, and a layout that exceeds its time budget
+ * is stopped by killing its worker. Workers of a layout version are started from the version's jar,
+ * snapshot workers from the server's class path.
+ *
+ * <p>The pool is configured using the following system properties:</p>
+ * <ul>
+ *   <li>{@code layoutWorkers}: the maximum number of workers per layout version, 0 (the default) disables
+ *       the pool and runs all layouts in the server's JVM,</li>
+ *   <li>{@code layoutWorkerHeap}: the maximum heap size of each worker (default 512m),</li>
+ *   <li>{@code layoutWorkerMaxLayouts}: the number of layouts after which a worker is replaced by a fresh
+ *       one (default 500).</li>
+ * </ul>
+ */
+public final class ElkLayoutWorkerPool {
+  private static final Logger LOG = Logger.getLogger(ElkLayoutWorkerPool.class.getName());
+
+  private static final int WORKERS = Math.max(0, Integer.getInteger("layoutWorkers", 0));
+
+  private static final String HEAP = System.getProperty("layoutWorkerHeap", "512m");
+
+  private static final int MAX_LAYOUTS = Math.max(1, Integer.getInteger("layoutWorkerMaxLayouts", 500));
+
+  private static final Map<String, VersionPool> pools = new ConcurrentHashMap<>();
+
+  private static final AtomicInteger workerIds = new AtomicInteger();
+
+  private static final AtomicLong killedWorkers = new AtomicLong();
+
+  private static final AtomicLong crashedWorkers = new AtomicLong();
+
+  private static final AtomicLong recycledWorkers = new AtomicLong();
+
+  /**
+   * Statistics of a single worker process.
+   */
+  public static final class WorkerStatistics {
+    public final int id;
+
+    public final String layoutVersion;
+
+    public final long layouts;
+
+    /** Fraction of the worker's lifetime spent on layouts. */
+    public final double utilization;
+
+    private WorkerStatistics(final int id, final String layoutVersion, final long layouts,
+            final double utilization) {
+      this.id = id;
+      this.layoutVersion = layoutVersion;
+      this.layouts = layouts;
+      this.utilization = utilization;
+    }
+  }
+
+  private ElkLayoutWorkerPool() {
+  }
+
+  public static boolean isEnabled() {
+    return WORKERS > 0;
+  }
+
+  /**
+   * Lay out the given graph in a worker process of the given layout version and apply the result to the
+   * graph. If the monitor is canceled, the worker is killed.
+   *
+   * @return the result of the layout; if successful, the geometry has been applied to the given graph.
+   */
+  public static ElkLayoutResult layout(final String layoutVersion, final ElkNode graph,
+          final CancellableProgressMonitor monitor) throws IOException, InterruptedException {
+    final VersionPool pool = pools.computeIfAbsent(layoutVersion, VersionPool::new);
+    final byte[] binaryGraph = ElkGraphBinary.toBytes(graph);
+    final Worker worker = pool.acquire(monitor);
+    if (worker == null) {
+      return ElkLayoutResult.canceled();
+    }
+    final Runnable kill = worker::kill;
+    monitor.onCancel(kill);
+    final long start = System.nanoTime();
+    try {
+      ElkLayoutWorker.writeRequest(worker.out, binaryGraph);
+      final ElkLayoutResult result = ElkLayoutWorker.readResponse(worker.in, start);
+      monitor.removeCancelListener(kill);
+      worker.layouts.incrementAndGet();
+      worker.busyNanos.addAndGet(result.getDurationNanos());
+      // The monitor is marked as canceled before the listener runs, hence a cancel that raced with the
+      // response has either been seen here or does not run the removed listener anymore
+      if (monitor.isCanceled() || !worker.process.isAlive()) {
+        pool.discard(worker);
+      } else {
+        pool.release(worker);
+      }
+      if (result.isSuccess()) {
+        ElkGraphGeometry.apply(result.getGeometry(), graph);
+      }
+      return result;
+    } catch (IOException e) {
+      monitor.removeCancelListener(kill);
+      pool.discard(worker);
+      if (monitor.isCanceled()) {
+        killedWorkers.incrementAndGet();
+        ElkLayoutWorkerPool.LOG.info("Killed layout worker " + worker.id + " (" + layoutVersion + ").");
+        return ElkLayoutResult.canceled();
+      }
+      crashedWorkers.incrementAndGet();
+      ElkLayoutWorkerPool.LOG.log(Level.WARNING, "Layout worker " + worker.id + " (" + layoutVersion + ") crashed.", e);
+      return ElkLayoutResult.failure("crash", "The layout process terminated unexpectedly.", System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * @return the statistics of all live workers, exported by {@link ElkMetrics}.
+   */
+  public static List<WorkerStatistics> getWorkerStatistics() {
+    final List<WorkerStatistics> ret = new ArrayList<>();
+    for (final VersionPool pool : pools.values()) {
+      for (final Worker worker : pool.workers.values()) {
+        final long lifetime = System.nanoTime() - worker.started;
+        ret.add(new WorkerStatistics(worker.id, pool.layoutVersion, worker.layouts.get(),
+                (double) worker.busyNanos.get() / lifetime));
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return the number of workers that have been killed because their layout exceeded its time budget.
+   */
+  public static long getKilledWorkers() {
+    return killedWorkers.get();
+  }
+
+  /**
+   * @return the number of workers that terminated unexpectedly, e.g. because they ran out of memory.
+   */
+  public static long getCrashedWorkers() {
+    return crashedWorkers.get();
+  }
+
+  /**
+   * @return the number of workers that have been replaced after {@code layoutWorkerMaxLayouts} layouts.
+   */
+  public static long getRecycledWorkers() {
+    return recycledWorkers.get();
+  }
+
+  /**
+   * The workers of a single layout version.
+   */
+  private static final class VersionPool {
+    private final String layoutVersion;
+
+    private final Map<Integer, Worker> workers = new ConcurrentHashMap<>();
+
+    /** Number of started workers, including the ones that are currently starting. */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+
+    private VersionPool(final String layoutVersion) {
+      this.layoutVersion = layoutVersion;
+    }
+
+    /**
+     * @return an idle worker, or {@code null} if the monitor has been canceled while waiting for one.
+     */
+    private Worker acquire(final CancellableProgressMonitor monitor) throws IOException, InterruptedException {
+      while (!monitor.isCanceled()) {
+        final Worker worker = this.idle.poll();
+        if (worker != null) {
+          return worker;
+        }
+        final int currentSize = this.size.get();
+        if (currentSize < WORKERS && this.size.compareAndSet(currentSize, currentSize + 1)) {
+          try {
+            final Worker started = this.start();
+            this.workers.put(started.id, started);
+            return started;
+          } catch (IOException | RuntimeException e) {
+            this.size.decrementAndGet();
+            throw e;
+          }
+        }
+        final Worker released = this.idle.poll(100, TimeUnit.MILLISECONDS);
+        if (released != null) {
+          return released;
+        }
+      }
+      return null;
+    }
+
+    private void release(final Worker worker) {
+      if (worker.layouts.get() >= MAX_LAYOUTS) {
+        recycledWorkers.incrementAndGet();
+        this.discard(worker);
+      } else {
+        this.idle.add(worker);
+      }
+    }
+
+    private void discard(final Worker worker) {
+      worker.kill();
+      if (this.workers.remove(worker.id) != null) {
+        this.size.decrementAndGet();
+      }
+    }
+
+    private Worker start() throws IOException {
+      final String classPath;
+      if ("snapshot".equals(this.layoutVersion)) {
+        classPath = System.getProperty("java.class.path");
+      } else {
+        classPath = ElkLayoutVersionRegistry.getJarPath(this.layoutVersion);
+        if (classPath == null) {
+          throw new IllegalArgumentException("Unknown layouter version: " + this.layoutVersion + ".");
+        }
+      }
+      final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+      final Process process = new ProcessBuilder(java, "-Xmx" + HEAP, "-XX:+ExitOnOutOfMemoryError",
+              "-cp", classPath, ElkLayoutWorker.class.getName())
+              .redirectError(ProcessBuilder.Redirect.INHERIT)
+              .start();
+      final Worker worker = new Worker(workerIds.incrementAndGet(), process);
+      try {
+        if (worker.in.readByte() != ElkLayoutWorker.READY) {
+          throw new IOException("Unexpected handshake.");
+        }
+      } catch (IOException e) {
+        worker.kill();
+        throw new IOException("Failed to start layout worker for " + this.layoutVersion + " ("
+                + classPath.split(File.pathSeparator)[0] + ").", e);
+      }
+      ElkLayoutWorkerPool.LOG.info("Started layout worker " + worker.id + " (" + this.layoutVersion + ").");
+      return worker;
+    }
+  }
+
+  private static final class Worker {
+    private final int id;
+
+    private final Process process;
+
+    private final DataInputStream in;
+
+    private final DataOutputStream out;
+
+    private final long started = System.nanoTime();
+
+    private final AtomicLong layouts = new AtomicLong();
+
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    private Worker(final int id, final Process process) {
+      this.id = id;
+      this.process = process;
+      this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    }
+
+    private void kill() {
+      this.process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,525 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.elk.core.data.LayoutAlgorithmData;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.emf.common.util.EList;
+
+/**
+ * Server-wide metrics, served by the {@code /metrics} endpoint in the Prometheus text format.
+ *
+ * <p>Layouts are recorded per layout version and top-level layout algorithm, conversions per pair of
+ * formats. The series are created on first use and only looked up afterwards, and all values are atomic
+ * counters, hence recording neither locks nor allocates. The algorithm label is the id of the algorithm
+ * known to the snapshot, {@code other} for unknown algorithms and {@code default} if none is set, so that
+ * arbitrary graphs cannot create arbitrarily many series. The state of the layout executor, the caches and
+ * the WebSocket compression is read from the respective classes when scraped.</p>
+ */
+public final class ElkMetrics {
+  /** Upper bounds of the layout duration buckets, in nanoseconds. */
+  private static final long[] DURATION_BOUNDS = {
+    TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(25),
+    TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(250),
+    TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2500),
+    TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(10)
+  };
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /** Upper bounds of the session setup duration buckets, in nanoseconds. */
+  private static final long[] SETUP_BOUNDS = {
+    TimeUnit.MICROSECONDS.toNanos(500), TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2),
+    TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(25),
+    TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(250),
+    TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(1)
+  };
+
+  /** Upper bounds of the graph size buckets, in elements. */
+  private static final long[] SIZE_BOUNDS = { 10, 30, 100, 300, 1000, 3000, 10000, 30000, 100000 };
+
+  /** Upper bounds of the conversion input size buckets, in bytes. */
+  private static final long[] BYTES_BOUNDS = { 1 << 10, 1 << 12, 1 << 14, 1 << 16, 1 << 18, 1 << 20, 1 << 22,
+    1 << 24 };
+
+  /** The number of distinct algorithm ids that are resolved to a label, later ones are labeled 'other'. */
+  private static final int MAX_ALGORITHMS = 64;
+
+  private static final String[] FORMATS = { "elkt", "elkg", "json" };
+
+  /**
+   * The possible outcomes of a layout.
+   */
+  public enum Outcome {
+    SUCCESS,
+
+    TIMEOUT,
+
+    FAILURE,
+
+    CANCELED;
+
+    private final String label = this.name().toLowerCase();
+  }
+
+  /** Layout series by layout version and algorithm label. */
+  private static final Map<String, Map<String, LayoutSeries>> layoutSeries = new ConcurrentHashMap<>();
+
+  /** Algorithm labels by the algorithm ids as given in the graphs. */
+  private static final Map<String, String> algorithmLabels = new ConcurrentHashMap<>();
+
+  private static final Map<String, AtomicLong> wrapperFailures = new ConcurrentHashMap<>();
+
+  private static final Histogram graphNodes = new Histogram(ElkMetrics.SIZE_BOUNDS, 1);
+
+  private static final Histogram graphEdges = new Histogram(ElkMetrics.SIZE_BOUNDS, 1);
+
+  private static final Histogram graphPorts = new Histogram(ElkMetrics.SIZE_BOUNDS, 1);
+
+  /** Conversion series indexed by {@link #conversionIndex(String, String)}. */
+  private static final ConversionSeries[] conversions = new ConversionSeries[FORMATS.length * FORMATS.length];
+
+  static {
+    for (int i = 0; i < FORMATS.length; i++) {
+      for (int j = 0; j < FORMATS.length; j++) {
+        conversions[i * FORMATS.length + j] = new ConversionSeries(
+                "inFormat=\"" + FORMATS[i] + "\",outFormat=\"" + FORMATS[j] + "\"");
+      }
+    }
+  }
+
+  /** Open WebSocket sessions by endpoint path. */
+  private static final Map<String, AtomicInteger> sessions = new ConcurrentHashMap<>();
+
+  /** Durations of setting up the endpoints of new WebSocket sessions by endpoint path. */
+  private static final Map<String, Histogram> sessionSetups = new ConcurrentHashMap<>();
+
+  private ElkMetrics() {
+  }
+
+  /**
+   * A histogram with fixed buckets whose counts are only aggregated when scraped.
+   */
+  private static final class Histogram {
+    private final long[] bounds;
+
+    /** The bucket upper bounds in the exported unit. */
+    private final String[] les;
+
+    private final double scale;
+
+    /** Non-cumulative counts, the last bucket holds the values above all bounds. */
+    private final AtomicLongArray buckets;
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private Histogram(final long[] bounds, final double scale) {
+      this.bounds = bounds;
+      this.scale = scale;
+      this.les = new String[bounds.length];
+      for (int i = 0; i < bounds.length; i++) {
+        this.les[i] = ElkMetrics.format(bounds[i] / scale);
+      }
+      this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    private void record(final long value) {
+      int i = 0;
+      while (i < this.bounds.length && value > this.bounds[i]) {
+        i++;
+      }
+      this.buckets.incrementAndGet(i);
+      this.sum.addAndGet(value);
+    }
+
+    private void write(final StringBuilder out, final String name, final String labels) {
+      final String separator = labels.isEmpty() ? "" : ",";
+      long count = 0;
+      for (int i = 0; i <= this.bounds.length; i++) {
+        count += this.buckets.get(i);
+        out.append(name).append("_bucket{").append(labels).append(separator).append("le=\"")
+                .append(i < this.bounds.length ? this.les[i] : "+Inf").append("\"} ").append(count).append('\n');
+      }
+      ElkMetrics.sample(out, name + "_sum", labels, ElkMetrics.format(this.sum.get() / this.scale));
+      ElkMetrics.sample(out, name + "_count", labels, Long.toString(count));
+    }
+  }
+
+  private static final class LayoutSeries {
+    private final String labels;
+
+    private final Histogram durations = new Histogram(ElkMetrics.DURATION_BOUNDS, ElkMetrics.NANOS_PER_SECOND);
+
+    private final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+
+    private LayoutSeries(final String layoutVersion, final String algorithm) {
+      this.labels = "layoutVersion=\"" + ElkMetrics.escape(layoutVersion) + "\",algorithm=\""
+              + ElkMetrics.escape(algorithm) + "\"";
+    }
+  }
+
+  private static final class ConversionSeries {
+    private final String labels;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final Histogram inputBytes = new Histogram(ElkMetrics.BYTES_BOUNDS, 1);
+
+    private ConversionSeries(final String labels) {
+      this.labels = labels;
+    }
+  }
+
+  /**
+   * Record a layout of the given graph, along with the graph's size.
+   *
+   * @param nanos the time from submitting the layout to its end, only recorded for successful layouts.
+   */
+  public static void recordLayout(final String layoutVersion, final ElkNode graph, final Outcome outcome,
+          final long nanos) {
+    final LayoutSeries series = ElkMetrics.layoutSeries(layoutVersion, graph);
+    series.outcomes.incrementAndGet(outcome.ordinal());
+    if (outcome == Outcome.SUCCESS) {
+      series.durations.record(nanos);
+    }
+    ElkMetrics.graphNodes.record(ElkMetrics.countNodes(graph));
+    ElkMetrics.graphEdges.record(ElkMetrics.countEdges(graph));
+    ElkMetrics.graphPorts.record(ElkMetrics.countPorts(graph));
+  }
+
+  /**
+   * Record a layout that failed inside of a layout version wrapper.
+   */
+  public static void recordWrapperFailure(final String layoutVersion) {
+    final String version = ElkMetrics.versionLabel(layoutVersion);
+    AtomicLong failures = ElkMetrics.wrapperFailures.get(version);
+    if (failures == null) {
+      ElkMetrics.wrapperFailures.putIfAbsent(version, new AtomicLong());
+      failures = ElkMetrics.wrapperFailures.get(version);
+    }
+    failures.incrementAndGet();
+  }
+
+  /**
+   * Record a conversion request.
+   *
+   * @param inputBytes the size of the input graph, or a negative value if it is not known.
+   */
+  public static void recordConversion(final String inFormat, final String outFormat, final long inputBytes) {
+    final int index = ElkMetrics.conversionIndex(inFormat, outFormat);
+    if (index >= 0) {
+      ElkMetrics.conversions[index].count.incrementAndGet();
+      if (inputBytes >= 0) {
+        ElkMetrics.conversions[index].inputBytes.record(inputBytes);
+      }
+    }
+  }
+
+  /**
+   * Record that a conversion request, which has been recorded already, failed.
+   */
+  public static void recordConversionFailure(final String inFormat, final String outFormat) {
+    final int index = ElkMetrics.conversionIndex(inFormat, outFormat);
+    if (index >= 0) {
+      ElkMetrics.conversions[index].failures.incrementAndGet();
+    }
+  }
+
+  public static void sessionOpened(final String endpoint) {
+    ElkMetrics.sessions.computeIfAbsent(endpoint, (it) -> new AtomicInteger()).incrementAndGet();
+  }
+
+  public static void sessionClosed(final String endpoint) {
+    ElkMetrics.sessions.computeIfAbsent(endpoint, (it) -> new AtomicInteger()).decrementAndGet();
+  }
+
+  /**
+   * Record the time it took to create the endpoint of a new WebSocket session, including its injector.
+   */
+  public static void recordSessionSetup(final String endpoint, final long nanos) {
+    ElkMetrics.sessionSetups.computeIfAbsent(endpoint,
+            (it) -> new Histogram(ElkMetrics.SETUP_BOUNDS, ElkMetrics.NANOS_PER_SECOND)).record(nanos);
+  }
+
+  private static LayoutSeries layoutSeries(final String layoutVersion, final ElkNode graph) {
+    final String version = ElkMetrics.versionLabel(layoutVersion);
+    final String algorithm = ElkMetrics.algorithmLabel(graph);
+    Map<String, LayoutSeries> byAlgorithm = ElkMetrics.layoutSeries.get(version);
+    if (byAlgorithm == null) {
+      ElkMetrics.layoutSeries.putIfAbsent(version, new ConcurrentHashMap<>());
+      byAlgorithm = ElkMetrics.layoutSeries.get(version);
+    }
+    LayoutSeries series = byAlgorithm.get(algorithm);
+    if (series == null) {
+      byAlgorithm.putIfAbsent(algorithm, new LayoutSeries(version, algorithm));
+      series = byAlgorithm.get(algorithm);
+    }
+    return series;
+  }
+
+  private static String versionLabel(final String layoutVersion) {
+    return ElkGraphLayouts.isKnownVersion(layoutVersion) ? layoutVersion : "unknown";
+  }
+
+  private static String algorithmLabel(final ElkNode graph) {
+    final String algorithm = graph.getProperty(CoreOptions.ALGORITHM);
+    if (algorithm == null) {
+      return "default";
+    }
+    final String label = ElkMetrics.algorithmLabels.get(algorithm);
+    if (label != null) {
+      return label;
+    }
+    if (ElkMetrics.algorithmLabels.size() >= ElkMetrics.MAX_ALGORITHMS) {
+      return "other";
+    }
+    final LayoutAlgorithmData data = LayoutMetaDataService.getInstance().getAlgorithmDataBySuffix(algorithm);
+    final String newLabel = data == null ? "other" : data.getId();
+    ElkMetrics.algorithmLabels.putIfAbsent(algorithm, newLabel);
+    return newLabel;
+  }
+
+  private static int conversionIndex(final String inFormat, final String outFormat) {
+    final int in = ElkMetrics.formatIndex(inFormat);
+    final int out = ElkMetrics.formatIndex(outFormat);
+    return in < 0 || out < 0 ? -1 : in * FORMATS.length + out;
+  }
+
+  private static int formatIndex(final String format) {
+    if (format == null) {
+      return -1;
+    }
+    switch (format) {
+      case "elkt":
+        return 0;
+      case "elkg":
+        return 1;
+      case "json":
+        return 2;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return the number of nodes in the given graph, not counting its root.
+   */
+  static long countNodes(final ElkNode node) {
+    final EList<ElkNode> children = node.getChildren();
+    long count = children.size();
+    for (int i = 0; i < children.size(); i++) {
+      count += ElkMetrics.countNodes(children.get(i));
+    }
+    return count;
+  }
+
+  static long countEdges(final ElkNode node) {
+    final EList<ElkNode> children = node.getChildren();
+    long count = node.getContainedEdges().size();
+    for (int i = 0; i < children.size(); i++) {
+      count += ElkMetrics.countEdges(children.get(i));
+    }
+    return count;
+  }
+
+  static long countPorts(final ElkNode node) {
+    final EList<ElkNode> children = node.getChildren();
+    long count = node.getPorts().size();
+    for (int i = 0; i < children.size(); i++) {
+      count += ElkMetrics.countPorts(children.get(i));
+    }
+    return count;
+  }
+
+  /**
+   * - - - - - - - - - - - - - -
+   *   HTTP request handling
+   * - - - - - - - - - - - - - -
+   */
+  public static void handleRequest(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+    final StringBuilder out = new StringBuilder(16384);
+    ElkMetrics.write(out);
+    resp.setStatus(HttpServletResponse.SC_OK);
+    resp.setHeader("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    resp.getOutputStream().write(out.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Write all metrics in the Prometheus text format.
+   */
+  static void write(final StringBuilder out) {
+    ElkMetrics.header(out, "elk_layout_duration_seconds", "histogram",
+            "Time from submitting a successful layout to its end.");
+    ElkMetrics.layoutSeries.values().forEach((byAlgorithm) -> byAlgorithm.values().forEach((series) ->
+            series.durations.write(out, "elk_layout_duration_seconds", series.labels)));
+    ElkMetrics.header(out, "elk_layouts_total", "counter", "Layouts by outcome.");
+    ElkMetrics.layoutSeries.values().forEach((byAlgorithm) -> byAlgorithm.values().forEach((series) -> {
+      for (final Outcome outcome : Outcome.values()) {
+        ElkMetrics.sample(out, "elk_layouts_total", series.labels + ",outcome=\"" + outcome.label + "\"",
+                Long.toString(series.outcomes.get(outcome.ordinal())));
+      }
+    }));
+    ElkMetrics.header(out, "elk_layout_version_wrapper_failures_total", "counter",
+            "Layouts that failed in a layout version wrapper without being canceled.");
+    ElkMetrics.wrapperFailures.forEach((version, failures) -> ElkMetrics.sample(out,
+            "elk_layout_version_wrapper_failures_total", "layoutVersion=\"" + ElkMetrics.escape(version) + "\"",
+            Long.toString(failures.get())));
+
+    ElkMetrics.header(out, "elk_layout_graph_nodes", "histogram", "Number of nodes of laid out graphs.");
+    ElkMetrics.graphNodes.write(out, "elk_layout_graph_nodes", "");
+    ElkMetrics.header(out, "elk_layout_graph_edges", "histogram", "Number of edges of laid out graphs.");
+    ElkMetrics.graphEdges.write(out, "elk_layout_graph_edges", "");
+    ElkMetrics.header(out, "elk_layout_graph_ports", "histogram", "Number of ports of laid out graphs.");
+    ElkMetrics.graphPorts.write(out, "elk_layout_graph_ports", "");
+
+    ElkMetrics.gauge(out, "elk_layout_executor_queue_depth", "Layouts waiting for a layout thread.",
+            ElkLayoutExecutor.getQueueDepth());
+    ElkMetrics.gauge(out, "elk_layout_executor_queue_capacity", "Maximum number of waiting layouts.",
+            ElkLayoutExecutor.getQueueCapacity());
+    ElkMetrics.gauge(out, "elk_layout_executor_threads", "Number of layout threads.",
+            ElkLayoutExecutor.getThreads());
+    ElkMetrics.gauge(out, "elk_layout_executor_active", "Layouts currently running.",
+            ElkLayoutExecutor.getActiveLayouts());
+    ElkMetrics.gauge(out, "elk_layout_executor_zombies", "Canceled layouts that still occupy a layout thread.",
+            ElkLayoutExecutor.getZombieLayouts());
+    ElkMetrics.counter(out, "elk_layout_executor_succeeded_total", "Layouts that succeeded.",
+            ElkLayoutExecutor.getSucceededLayouts());
+    ElkMetrics.counter(out, "elk_layout_executor_failed_total", "Layouts that failed without being canceled.",
+            ElkLayoutExecutor.getFailedLayouts());
+    ElkMetrics.counter(out, "elk_layout_executor_rejected_total", "Layouts rejected because the queue was full.",
+            ElkLayoutExecutor.getRejectedLayouts());
+    ElkMetrics.counter(out, "elk_layout_executor_canceled_total",
+            "Layouts canceled by a timeout or a newer request, while waiting or running.",
+            ElkLayoutExecutor.getCanceledLayouts());
+    if (ElkLayoutWorkerPool.isEnabled()) {
+      ElkMetrics.counter(out, "elk_layout_workers_killed_total", "Layout worker processes killed.",
+              ElkLayoutWorkerPool.getKilledWorkers());
+      ElkMetrics.counter(out, "elk_layout_workers_crashed_total", "Layout worker processes that crashed.",
+              ElkLayoutWorkerPool.getCrashedWorkers());
+      ElkMetrics.counter(out, "elk_layout_workers_recycled_total", "Layout worker processes recycled.",
+              ElkLayoutWorkerPool.getRecycledWorkers());
+      final List<ElkLayoutWorkerPool.WorkerStatistics> workers = ElkLayoutWorkerPool.getWorkerStatistics();
+      ElkMetrics.header(out, "elk_layout_worker_layouts_total", "counter",
+              "Layouts run by a live layout worker process.");
+      workers.forEach(worker -> ElkMetrics.sample(out, "elk_layout_worker_layouts_total",
+              ElkMetrics.workerLabels(worker), Long.toString(worker.layouts)));
+      ElkMetrics.header(out, "elk_layout_worker_utilization", "gauge",
+              "Fraction of a live layout worker process's lifetime spent on layouts.");
+      workers.forEach(worker -> ElkMetrics.sample(out, "elk_layout_worker_utilization",
+              ElkMetrics.workerLabels(worker), Double.toString(worker.utilization)));
+    }
+    ElkMetrics.header(out, "elk_layout_version_load_metaspace_bytes", "gauge",
+            "Estimated metaspace allocated while loading a layout version and creating its layouter, not "
+                    + "including the classes of layout algorithms, which are loaded by their first layout.");
+    ElkLayoutVersionRegistry.getResidentVersions().forEach((version, bytes) -> ElkMetrics.sample(out,
+            "elk_layout_version_load_metaspace_bytes", "layoutVersion=\"" + ElkMetrics.escape(version) + "\"",
+            Long.toString(bytes)));
+
+    ElkMetrics.header(out, "elk_conversions_total", "counter", "Conversion requests by format pair.");
+    for (final ConversionSeries series : ElkMetrics.conversions) {
+      ElkMetrics.sample(out, "elk_conversions_total", series.labels, Long.toString(series.count.get()));
+    }
+    ElkMetrics.header(out, "elk_conversion_failures_total", "counter", "Failed conversion requests.");
+    for (final ConversionSeries series : ElkMetrics.conversions) {
+      ElkMetrics.sample(out, "elk_conversion_failures_total", series.labels, Long.toString(series.failures.get()));
+    }
+    ElkMetrics.header(out, "elk_conversion_input_bytes", "histogram", "Size of the graphs to be converted.");
+    for (final ConversionSeries series : ElkMetrics.conversions) {
+      series.inputBytes.write(out, "elk_conversion_input_bytes", series.labels);
+    }
+
+    ElkMetrics.writeCache(out, "elk_layout_cache", ElkLayoutCache.getHits(), ElkLayoutCache.getMisses(),
+            ElkLayoutCache.getEvictions(), ElkLayoutCache.getEntries(), ElkLayoutCache.getEstimatedBytes());
+    ElkMetrics.writeCache(out, "elk_conversion_cache", ElkConversionCache.getHits(), ElkConversionCache.getMisses(),
+            ElkConversionCache.getEvictions(), ElkConversionCache.getEntries(), ElkConversionCache.getEstimatedBytes());
+
+    ElkMetrics.header(out, "elk_websocket_sessions", "gauge", "Open WebSocket sessions by endpoint.");
+    ElkMetrics.sessions.forEach((endpoint, count) -> ElkMetrics.sample(out, "elk_websocket_sessions",
+            "endpoint=\"" + ElkMetrics.escape(endpoint) + "\"", Integer.toString(count.get())));
+    ElkMetrics.header(out, "elk_websocket_session_setup_seconds", "histogram",
+            "Time to create the endpoint of a new WebSocket session, including its injector.");
+    ElkMetrics.sessionSetups.forEach((endpoint, durations) -> durations.write(out,
+            "elk_websocket_session_setup_seconds", "endpoint=\"" + ElkMetrics.escape(endpoint) + "\""));
+    ElkMetrics.counter(out, "elk_websocket_compressed_messages_total", "WebSocket messages sent compressed.",
+            ThresholdPerMessageDeflateExtension.getCompressedMessages());
+    ElkMetrics.counter(out, "elk_websocket_uncompressed_messages_total",
+            "WebSocket messages sent uncompressed because they were below the threshold.",
+            ThresholdPerMessageDeflateExtension.getUncompressedMessages());
+    ElkMetrics.counter(out, "elk_websocket_compression_input_bytes_total",
+            "Size of the compressed WebSocket messages before compression.",
+            ThresholdPerMessageDeflateExtension.getBytesBeforeCompression());
+    ElkMetrics.counter(out, "elk_websocket_compression_output_bytes_total",
+            "Size of the compressed WebSocket messages after compression.",
+            ThresholdPerMessageDeflateExtension.getBytesAfterCompression());
+    ElkMetrics.header(out, "elk_websocket_compression_seconds_total", "counter",
+            "Time spent compressing WebSocket messages.");
+    ElkMetrics.sample(out, "elk_websocket_compression_seconds_total", "",
+            ElkMetrics.format(ThresholdPerMessageDeflateExtension.getCompressionNanos() / NANOS_PER_SECOND));
+  }
+
+  private static void writeCache(final StringBuilder out, final String name, final long hits, final long misses,
+          final long evictions, final int entries, final long bytes) {
+    ElkMetrics.counter(out, name + "_hits_total", "Cache hits.", hits);
+    ElkMetrics.counter(out, name + "_misses_total", "Cache misses.", misses);
+    ElkMetrics.counter(out, name + "_evictions_total", "Cache evictions.", evictions);
+    ElkMetrics.gauge(out, name + "_entries", "Cached entries.", entries);
+    ElkMetrics.gauge(out, name + "_bytes", "Estimated size of the cached entries.", bytes);
+  }
+
+  private static void counter(final StringBuilder out, final String name, final String help, final long value) {
+    ElkMetrics.header(out, name, "counter", help);
+    ElkMetrics.sample(out, name, "", Long.toString(value));
+  }
+
+  private static void gauge(final StringBuilder out, final String name, final String help, final long value) {
+    ElkMetrics.header(out, name, "gauge", help);
+    ElkMetrics.sample(out, name, "", Long.toString(value));
+  }
+
+  private static String workerLabels(final ElkLayoutWorkerPool.WorkerStatistics worker) {
+    return "layoutVersion=\"" + ElkMetrics.escape(worker.layoutVersion) + "\",worker=\"" + worker.id + "\"";
+  }
+
+  private static void header(final StringBuilder out, final String name, final String type, final String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(final StringBuilder out, final String name, final String labels, final String value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String format(final double value) {
+    return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+  }
+
+  private static String escape(final String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
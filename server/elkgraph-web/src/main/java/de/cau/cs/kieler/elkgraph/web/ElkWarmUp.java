@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.json.ElkGraphJson;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+/**
+ * Pushes a built-in corpus of sample graphs through all layout versions and both directions of the format
+ * conversions, such that the JIT has compiled the hot paths before the first user request arrives.
+ * The number of rounds is given by the system property {@code warmUpRounds} (default 5, 0 disables the
+ * warm-up), the layout versions to warm up by {@code warmUpVersions} (comma-separated, default all).
+ * Each round slightly changes the graphs to avoid hits in the {@link ElkLayoutCache}.
+ */
+public final class ElkWarmUp {
+  private static final Logger LOG = Logger.getLogger(ElkWarmUp.class.getName());
+
+  private static final int ROUNDS = Math.max(0, Integer.getInteger("warmUpRounds", 5));
+
+  /** Layout algorithms that are available in all supported ELK releases. */
+  private static final String[] ALGORITHMS = {
+          "org.eclipse.elk.layered", "org.eclipse.elk.mrtree", "org.eclipse.elk.force",
+          "org.eclipse.elk.radial", "org.eclipse.elk.rectpacking" };
+
+  private static volatile boolean done = false;
+
+  private ElkWarmUp() {
+  }
+
+  /**
+   * @return whether the warm-up has finished (or is disabled), i.e. the server is ready to serve requests.
+   */
+  public static boolean isDone() {
+    return done;
+  }
+
+  /**
+   * @return the layout versions to be warmed up, always including the snapshot.
+   */
+  public static List<String> getVersions() {
+    final List<String> versions = new ArrayList<>();
+    versions.add("snapshot");
+    final String property = System.getProperty("warmUpVersions");
+    if (property == null) {
+      versions.addAll(ElkLayoutVersionRegistry.getVersions());
+    } else {
+      Arrays.stream(property.split(",")).map(String::trim).filter(ElkLayoutVersionRegistry::isKnown)
+              .forEach(versions::add);
+    }
+    return versions;
+  }
+
+  /**
+   * Load the layout versions to be warmed up in parallel, using the given executor.
+   */
+  public static CompletableFuture<Void> loadLayoutVersions(final ExecutorService executor) {
+    if (ROUNDS == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.allOf(getVersions().stream()
+            .filter(ElkLayoutVersionRegistry::isKnown)
+            .map((version) -> CompletableFuture.runAsync(() -> ElkLayoutVersionRegistry.getWrapper(version), executor))
+            .toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * Start the warm-up in the background. The languages must have been set up already.
+   */
+  public static void start() {
+    if (ROUNDS == 0) {
+      done = true;
+      return;
+    }
+    final Thread thread = new Thread(ElkWarmUp::run, "elk-warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void run() {
+    final long start = System.nanoTime();
+    final List<String> versions = getVersions();
+    final AtomicInteger layouts = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger();
+    // Each version on its own thread, the layouts themselves run on the shared layout executor
+    final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(versions.size(), ElkLayoutExecutor.getThreads()), (runnable) -> {
+      final Thread thread = new Thread(runnable, "elk-warm-up-version");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        final List<ElkNode> corpus = createCorpus(round);
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(CompletableFuture.runAsync(() -> convert(corpus, failures), executor));
+        for (final String version : versions) {
+          tasks.add(CompletableFuture.runAsync(() -> {
+            final ElkGraphDiagramGenerator generator = new ElkGraphDiagramGenerator();
+            for (final ElkNode graph : corpus) {
+              layouts.incrementAndGet();
+              if (generator.generate(graph, version) == null) {
+                failures.incrementAndGet();
+              }
+            }
+          }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+      }
+    } catch (RuntimeException e) {
+      ElkWarmUp.LOG.log(Level.WARNING, "Warm-up failed.", e);
+    } finally {
+      executor.shutdown();
+      done = true;
+    }
+    ElkWarmUp.LOG.info("Warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            + " ms: " + layouts.get() + " layouts of " + (versions.size()) + " layout versions, "
+            + failures.get() + " failures.");
+  }
+
+  private static void convert(final List<ElkNode> corpus, final AtomicInteger failures) {
+    for (final ElkNode graph : corpus) {
+      final String json = ElkGraphJson.forGraph(graph).toJson();
+      // Bypass the cache, which would keep the warm-up's graphs and skip the actual conversions
+      final ElkGraphConversions.Result elkt = ElkGraphConversions.convertNow("json", "elkt",
+              new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), true);
+      if (elkt instanceof ElkGraphConversions.Error
+              || ElkGraphConversions.convertNow("elkt", "json",
+                      new ByteArrayInputStream(elkt.getContent().getBytes(StandardCharsets.UTF_8)), true)
+                      instanceof ElkGraphConversions.Error) {
+        failures.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Create one graph per algorithm, with labels, ports and a level of hierarchy.
+   */
+  private static List<ElkNode> createCorpus(final int round) {
+    final List<ElkNode> corpus = new ArrayList<>();
+    for (int i = 0; i < ALGORITHMS.length; i++) {
+      final ElkNode graph = ElkGraphUtil.createGraph();
+      graph.setIdentifier("warmUp" + i);
+      graph.setProperty(CoreOptions.ALGORITHM, ALGORITHMS[i]);
+      final List<ElkNode> nodes = new ArrayList<>();
+      for (int n = 0; n < 40; n++) {
+        final ElkNode node = ElkGraphUtil.createNode(graph);
+        node.setIdentifier("n" + n);
+        node.setDimensions(30 + round, 30 + (n % 4) * 5);
+        ElkGraphUtil.createLabel("n" + n, node);
+        nodes.add(node);
+        if (n % 10 == 0) {
+          final ElkNode child = ElkGraphUtil.createNode(node);
+          child.setIdentifier("c");
+          ElkGraphUtil.createSimpleEdge(child, ElkGraphUtil.createNode(node));
+        }
+      }
+      for (int n = 1; n < nodes.size(); n++) {
+        final ElkNode source = nodes.get((n - 1) / 2);
+        final ElkNode target = nodes.get(n);
+        final ElkEdge edge;
+        if (n % 3 == 0) {
+          final ElkPort port = ElkGraphUtil.createPort(target);
+          port.setIdentifier("p" + n);
+          edge = ElkGraphUtil.createSimpleEdge(source, port);
+        } else {
+          edge = ElkGraphUtil.createSimpleEdge(source, target);
+        }
+        edge.setIdentifier("e" + n);
+        if (n % 5 == 0) {
+          ElkGraphUtil.createLabel("e" + n, edge);
+        }
+      }
+      corpus.add(graph);
+    }
+    return corpus;
+  }
+}
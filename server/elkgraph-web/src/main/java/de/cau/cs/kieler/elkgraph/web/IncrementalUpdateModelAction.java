@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.eclipse.sprotty.Action;
+import org.eclipse.sprotty.SModelElement;
+
+/**
+ * Sent instead of an {@link org.eclipse.sprotty.UpdateModelAction} if only a small part of the model
+ * changed, see {@link SModelDiff}. The client applies the changes to the model it currently shows, in the
+ * order removals, updates, additions, and then treats the result like a regular model update.
+ */
+public class IncrementalUpdateModelAction implements Action {
+  public static final String KIND = "incrementalUpdateModel";
+
+  /**
+   * An element that is new to the model, together with its children.
+   */
+  public static class Addition {
+    private String parentId;
+
+    /** The index of the element in its parent's children once all changes have been applied. */
+    private int index;
+
+    private SModelElement element;
+
+    public Addition() {
+    }
+
+    public Addition(final String parentId, final int index, final SModelElement element) {
+      this.parentId = parentId;
+      this.index = index;
+      this.element = element;
+    }
+
+    public String getParentId() {
+      return this.parentId;
+    }
+
+    public int getIndex() {
+      return this.index;
+    }
+
+    public SModelElement getElement() {
+      return this.element;
+    }
+  }
+
+  private String kind = IncrementalUpdateModelAction.KIND;
+
+  /** The ids of the removed elements, their children are removed implicitly. */
+  private List<String> removed = new ArrayList<>();
+
+  /** Elements whose own properties changed, e.g. moved nodes, without their children. */
+  private List<SModelElement> updated = new ArrayList<>();
+
+  private List<IncrementalUpdateModelAction.Addition> added = new ArrayList<>();
+
+  private Boolean animate;
+
+  public IncrementalUpdateModelAction() {
+  }
+
+  public IncrementalUpdateModelAction(final Consumer<IncrementalUpdateModelAction> initializer) {
+    initializer.accept(this);
+  }
+
+  @Override
+  public String getKind() {
+    return this.kind;
+  }
+
+  public void setKind(final String kind) {
+    this.kind = kind;
+  }
+
+  public List<String> getRemoved() {
+    return this.removed;
+  }
+
+  public void setRemoved(final List<String> removed) {
+    this.removed = removed;
+  }
+
+  public List<SModelElement> getUpdated() {
+    return this.updated;
+  }
+
+  public void setUpdated(final List<SModelElement> updated) {
+    this.updated = updated;
+  }
+
+  public List<IncrementalUpdateModelAction.Addition> getAdded() {
+    return this.added;
+  }
+
+  public void setAdded(final List<IncrementalUpdateModelAction.Addition> added) {
+    this.added = added;
+  }
+
+  public Boolean getAnimate() {
+    return this.animate;
+  }
+
+  public void setAnimate(final Boolean animate) {
+    this.animate = animate;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    IncrementalUpdateModelAction other = (IncrementalUpdateModelAction) obj;
+    return Objects.equals(this.kind, other.kind) && Objects.equals(this.removed, other.removed)
+            && Objects.equals(this.updated, other.updated) && Objects.equals(this.added, other.added)
+            && Objects.equals(this.animate, other.animate);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.kind, this.removed, this.updated, this.added, this.animate);
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + " [" +
+            "\n  kind = " + this.kind +
+            "\n  removed = " + this.removed.size() +
+            "\n  updated = " + this.updated.size() +
+            "\n  added = " + this.added.size() +
+            "\n  animate = " + this.animate +
+            "\n]";
+  }
+}
@@ -12,6 +12,9 @@ package de.cau.cs.kieler.elkgraph.web;
 import com.google.common.collect.Iterables;
 import com.google.gson.GsonBuilder;
 import com.google.inject.Inject;
+import javax.websocket.CloseReason;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
 import org.eclipse.lsp4j.jsonrpc.Launcher;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.LanguageClientAware;
@@ -29,19 +32,41 @@ public class LanguageServerEndpoint extends WebSocketEndpoint<LanguageClient> {
   @Inject
   private LanguageServer languageServer;
 
+  /**
+   * Same as the inherited implementation, but sends messages using a {@link StreamingWebSocketLauncherBuilder}.
+   */
+  @Override
+  public void onOpen(final Session session, final EndpointConfig config) {
+    ElkMetrics.sessionOpened(session.getRequestURI().getPath());
+    final StreamingWebSocketLauncherBuilder<LanguageClient> builder = new StreamingWebSocketLauncherBuilder<>();
+    builder.setSession(session);
+    this.configure(builder);
+    final Launcher<LanguageClient> launcher = builder.create();
+    this.connect(builder.getLocalServices(), launcher.getRemoteProxy());
+  }
+
+  @Override
+  public void onClose(final Session session, final CloseReason closeReason) {
+    super.onClose(session, closeReason);
+    ElkMetrics.sessionClosed(session.getRequestURI().getPath());
+  }
+
   @Override
   protected void configure(final Launcher.Builder<LanguageClient> builder) {
     builder.setLocalService(this.languageServer);
     builder.setRemoteInterface(LanguageClient.class);
     builder.configureGson((GsonBuilder gsonBuilder) -> {
       // ActionTypeAdapter#configureGson() cannot be used here since we want to register our
-      // own ChangeLayoutVersionAction
+      // own actions
       final ActionTypeAdapter.Factory defaultFactory = new ActionTypeAdapter.Factory();
       defaultFactory.addActionKind(ElkDiagramServer.ChangeLayoutVersionAction.KIND,
               ElkDiagramServer.ChangeLayoutVersionAction.class);
+      defaultFactory.addActionKind(ElkDiagramServer.RequestFullModelAction.KIND,
+              ElkDiagramServer.RequestFullModelAction.class);
       // The following two lines represent the implementation of ActionTypeAdapter#configureGson()
       gsonBuilder.registerTypeAdapterFactory(defaultFactory);
       gsonBuilder.registerTypeAdapterFactory(new EnumTypeAdapter.Factory());
+      gsonBuilder.registerTypeAdapterFactory(new SModelTypeAdapterFactory());
     });
   }
 
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.eclipse.sprotty.BoundsAware;
+import org.eclipse.sprotty.SEdge;
+import org.eclipse.sprotty.SGraph;
+import org.eclipse.sprotty.SLabel;
+import org.eclipse.sprotty.SModelElement;
+import org.eclipse.sprotty.SModelRoot;
+import org.eclipse.sprotty.SNode;
+import org.eclipse.sprotty.SPort;
+
+/**
+ * Computes the difference between two models produced by the {@link ElkGraphDiagramGenerator}, relying on
+ * the ids of elements being stable across generations. An element is retained if the old model contains an
+ * element with the same id, class and parent. Retained elements whose own properties changed are updated,
+ * all other elements of the new model are added, and all other elements of the old model are removed.
+ */
+public final class SModelDiff {
+  private SModelDiff() {
+  }
+
+  /**
+   * @return the changes turning {@code oldRoot} into {@code newRoot}, or {@code null} if sending the
+   *         complete new model is preferable, i.e. if the roots differ or the changes comprise at least as
+   *         many elements as the new model.
+   */
+  public static IncrementalUpdateModelAction diff(final SModelRoot oldRoot, final SModelRoot newRoot) {
+    if (oldRoot == null || newRoot == null || oldRoot.getClass() != newRoot.getClass()
+            || !Objects.equals(oldRoot.getId(), newRoot.getId())
+            || !Objects.equals(oldRoot.getType(), newRoot.getType()) || shallowCopy(newRoot) == null) {
+      return null;
+    }
+    final Diff diff = new Diff(countElements(newRoot));
+    diff.index(oldRoot);
+    if (!diff.compare(oldRoot, newRoot)) {
+      return null;
+    }
+    diff.collectRemoved(oldRoot);
+    if (diff.size >= diff.limit) {
+      return null;
+    }
+    return new IncrementalUpdateModelAction((it) -> {
+      it.setRemoved(diff.removed);
+      it.setUpdated(diff.updated);
+      it.setAdded(diff.added);
+    });
+  }
+
+  private static int countElements(final SModelElement element) {
+    int count = 1;
+    if (element.getChildren() != null) {
+      for (final SModelElement child : element.getChildren()) {
+        count += countElements(child);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The state of a single comparison.
+   */
+  private static final class Diff {
+    private final int limit;
+
+    private int size = 0;
+
+    private final Map<String, SModelElement> oldElements = new HashMap<>();
+
+    private final Map<String, String> oldParents = new HashMap<>();
+
+    /** The index of each element of the old model in its parent's children. */
+    private final Map<String, Integer> oldIndices = new HashMap<>();
+
+    private final Map<String, SModelElement> retained = new HashMap<>();
+
+    private final List<String> removed = new ArrayList<>();
+
+    private final List<SModelElement> updated = new ArrayList<>();
+
+    private final List<IncrementalUpdateModelAction.Addition> added = new ArrayList<>();
+
+    private Diff(final int limit) {
+      this.limit = limit;
+    }
+
+    private void index(final SModelElement oldElement) {
+      this.oldElements.put(oldElement.getId(), oldElement);
+      if (oldElement.getChildren() != null) {
+        final List<SModelElement> oldChildren = oldElement.getChildren();
+        for (int i = 0; i < oldChildren.size(); i++) {
+          this.oldParents.put(oldChildren.get(i).getId(), oldElement.getId());
+          this.oldIndices.put(oldChildren.get(i).getId(), i);
+          this.index(oldChildren.get(i));
+        }
+      }
+    }
+
+    /**
+     * Compare the children of two retained elements, recursively.
+     *
+     * @return {@code false} if the model must be sent completely, i.e. if the diff became too large or if
+     *         retained children changed their order, which an incremental update cannot express.
+     */
+    private boolean compare(final SModelElement oldElement, final SModelElement newElement) {
+      this.retained.put(newElement.getId(), newElement);
+      if (!sameProperties(oldElement, newElement)) {
+        this.updated.add(shallowCopy(newElement));
+        this.size++;
+      }
+      if (newElement.getChildren() == null) {
+        return this.size < this.limit;
+      }
+      int lastOldIndex = -1;
+      final List<SModelElement> newChildren = newElement.getChildren();
+      for (int i = 0; i < newChildren.size(); i++) {
+        final SModelElement newChild = newChildren.get(i);
+        final SModelElement oldChild = this.oldElements.get(newChild.getId());
+        if (oldChild != null && oldChild.getClass() == newChild.getClass()
+                && Objects.equals(this.oldParents.get(newChild.getId()), newElement.getId())
+                && shallowCopy(newChild) != null) {
+          final int oldIndex = this.oldIndices.get(newChild.getId());
+          if (oldIndex < lastOldIndex) {
+            return false;
+          }
+          lastOldIndex = oldIndex;
+          if (!this.compare(oldChild, newChild)) {
+            return false;
+          }
+        } else {
+          this.added.add(new IncrementalUpdateModelAction.Addition(newElement.getId(), i, newChild));
+          this.size += countElements(newChild);
+          if (this.size >= this.limit) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Collect the top-most elements of the old model that are not retained.
+     */
+    private void collectRemoved(final SModelElement oldElement) {
+      if (oldElement.getChildren() == null) {
+        return;
+      }
+      for (final SModelElement oldChild : oldElement.getChildren()) {
+        final SModelElement newChild = this.retained.get(oldChild.getId());
+        if (newChild == null || newChild.getClass() != oldChild.getClass()) {
+          this.removed.add(oldChild.getId());
+          this.size++;
+        } else {
+          this.collectRemoved(oldChild);
+        }
+      }
+    }
+  }
+
+  private static boolean sameProperties(final SModelElement a, final SModelElement b) {
+    if (!Objects.equals(a.getType(), b.getType()) || !Objects.equals(a.getCssClasses(), b.getCssClasses())) {
+      return false;
+    }
+    if (a instanceof BoundsAware) {
+      final BoundsAware boundsA = (BoundsAware) a;
+      final BoundsAware boundsB = (BoundsAware) b;
+      if (!Objects.equals(boundsA.getPosition(), boundsB.getPosition())
+              || !Objects.equals(boundsA.getSize(), boundsB.getSize())) {
+        return false;
+      }
+    }
+    if (a instanceof SLabel) {
+      return Objects.equals(((SLabel) a).getText(), ((SLabel) b).getText());
+    }
+    if (a instanceof SEdge) {
+      final SEdge edgeA = (SEdge) a;
+      final SEdge edgeB = (SEdge) b;
+      return Objects.equals(edgeA.getSourceId(), edgeB.getSourceId())
+              && Objects.equals(edgeA.getTargetId(), edgeB.getTargetId())
+              && Objects.equals(edgeA.getRoutingPoints(), edgeB.getRoutingPoints());
+    }
+    return true;
+  }
+
+  /**
+   * @return a copy of the given element without its children, or {@code null} if elements of the given
+   *         class are not supported, in which case they are always replaced as a whole.
+   */
+  private static SModelElement shallowCopy(final SModelElement element) {
+    final SModelElement copy;
+    if (element.getClass() == SGraph.class) {
+      copy = new SGraph();
+    } else if (element.getClass() == SNode.class) {
+      copy = new SNode();
+    } else if (element.getClass() == SPort.class) {
+      copy = new SPort();
+    } else if (element.getClass() == SLabel.class) {
+      final SLabel label = new SLabel();
+      label.setText(((SLabel) element).getText());
+      copy = label;
+    } else if (element.getClass() == SEdge.class) {
+      final SEdge edge = new SEdge();
+      edge.setSourceId(((SEdge) element).getSourceId());
+      edge.setTargetId(((SEdge) element).getTargetId());
+      edge.setRoutingPoints(((SEdge) element).getRoutingPoints());
+      copy = edge;
+    } else {
+      return null;
+    }
+    copy.setType(element.getType());
+    copy.setId(element.getId());
+    copy.setCssClasses(element.getCssClasses());
+    if (element instanceof BoundsAware) {
+      ((BoundsAware) copy).setPosition(((BoundsAware) element).getPosition());
+      ((BoundsAware) copy).setSize(((BoundsAware) element).getSize());
+    }
+    return copy;
+  }
+}
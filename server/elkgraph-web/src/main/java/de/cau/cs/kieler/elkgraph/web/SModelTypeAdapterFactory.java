@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+import org.eclipse.sprotty.BoundsAware;
+import org.eclipse.sprotty.Dimension;
+import org.eclipse.sprotty.Point;
+import org.eclipse.sprotty.SEdge;
+import org.eclipse.sprotty.SGraph;
+import org.eclipse.sprotty.SLabel;
+import org.eclipse.sprotty.SModelElement;
+import org.eclipse.sprotty.SNode;
+import org.eclipse.sprotty.SPort;
+import org.eclipse.sprotty.SShapeElement;
+
+/**
+ * Writes the sprotty elements created by the {@link ElkGraphTransformer} without reflection. Properties
+ * that are {@code null} or have their default value, such as {@code selected: false}, are omitted since
+ * the client assumes the same defaults. Integral coordinates are written without a fraction, small ones
+ * from a table of constants. Reading is left to Gson's reflective adapters.
+ */
+public class SModelTypeAdapterFactory implements TypeAdapterFactory {
+  /** Integral coordinates in [0, 4096) are written using these constants. */
+  private static final String[] SMALL_INTEGERS = new String[4096];
+
+  static {
+    for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+      SMALL_INTEGERS[i] = Integer.toString(i);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    final Class<? super T> rawType = type.getRawType();
+    if (rawType == SGraph.class || rawType == SNode.class || rawType == SPort.class || rawType == SLabel.class
+            || rawType == SEdge.class) {
+      return (TypeAdapter<T>) new SModelElementAdapter(gson, gson.getDelegateAdapter(this, (TypeToken<SModelElement>) type));
+    }
+    return null;
+  }
+
+  private static final class SModelElementAdapter extends TypeAdapter<SModelElement> {
+    private final Gson gson;
+
+    private final TypeAdapter<SModelElement> delegate;
+
+    private SModelElementAdapter(final Gson gson, final TypeAdapter<SModelElement> delegate) {
+      this.gson = gson;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public SModelElement read(final JsonReader in) throws IOException {
+      return this.delegate.read(in);
+    }
+
+    @Override
+    public void write(final JsonWriter out, final SModelElement element) throws IOException {
+      if (element == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      this.string(out, "type", element.getType());
+      this.string(out, "id", element.getId());
+      if (element.getCssClasses() != null && !element.getCssClasses().isEmpty()) {
+        out.name("cssClasses");
+        this.gson.toJson(element.getCssClasses(), List.class, out);
+      }
+      this.string(out, "trace", element.getTrace());
+      if (element instanceof SGraph) {
+        final SGraph graph = (SGraph) element;
+        this.object(out, "canvasBounds", graph.getCanvasBounds());
+        if (graph.getRevision() != 0) {
+          out.name("revision").value(graph.getRevision());
+        }
+      }
+      if (element instanceof BoundsAware) {
+        final BoundsAware bounds = (BoundsAware) element;
+        this.point(out, "position", bounds.getPosition());
+        final Dimension size = bounds.getSize();
+        if (size != null) {
+          out.name("size").beginObject();
+          number(out.name("width"), size.getWidth());
+          number(out.name("height"), size.getHeight());
+          out.endObject();
+        }
+        this.object(out, "layoutOptions", element instanceof SGraph
+                ? ((SGraph) element).getLayoutOptions() : ((SShapeElement) element).getLayoutOptions());
+      }
+      if (element instanceof SNode) {
+        final SNode node = (SNode) element;
+        this.string(out, "layout", node.getLayout());
+        this.object(out, "edgePlacement", node.getEdgePlacement());
+        this.selected(out, node.isSelected());
+      } else if (element instanceof SPort) {
+        this.selected(out, ((SPort) element).isSelected());
+      } else if (element instanceof SLabel) {
+        final SLabel label = (SLabel) element;
+        this.string(out, "text", label.getText());
+        this.point(out, "alignment", label.getAlignment());
+        this.object(out, "edgePlacement", label.getEdgePlacement());
+        this.selected(out, label.isSelected());
+      } else if (element instanceof SEdge) {
+        final SEdge edge = (SEdge) element;
+        this.string(out, "sourceId", edge.getSourceId());
+        this.string(out, "targetId", edge.getTargetId());
+        if (edge.getRoutingPoints() != null) {
+          out.name("routingPoints").beginArray();
+          for (final Point point : edge.getRoutingPoints()) {
+            this.point(out, point);
+          }
+          out.endArray();
+        }
+        this.selected(out, edge.isSelected());
+      }
+      final List<SModelElement> children = element.getChildren();
+      if (children != null && !children.isEmpty()) {
+        out.name("children").beginArray();
+        for (final SModelElement child : children) {
+          this.gson.toJson(child, child.getClass(), out);
+        }
+        out.endArray();
+      }
+      out.endObject();
+    }
+
+    private void string(final JsonWriter out, final String name, final String value) throws IOException {
+      if (value != null) {
+        out.name(name).value(value);
+      }
+    }
+
+    private void object(final JsonWriter out, final String name, final Object value) throws IOException {
+      if (value != null) {
+        out.name(name);
+        this.gson.toJson(value, value.getClass(), out);
+      }
+    }
+
+    private void selected(final JsonWriter out, final boolean selected) throws IOException {
+      if (selected) {
+        out.name("selected").value(true);
+      }
+    }
+
+    private void point(final JsonWriter out, final String name, final Point point) throws IOException {
+      if (point != null) {
+        out.name(name);
+        this.point(out, point);
+      }
+    }
+
+    private void point(final JsonWriter out, final Point point) throws IOException {
+      out.beginObject();
+      number(out.name("x"), point.getX());
+      number(out.name("y"), point.getY());
+      out.endObject();
+    }
+  }
+
+  private static void number(final JsonWriter out, final double value) throws IOException {
+    final int intValue = (int) value;
+    if (intValue == value) {
+      if (intValue >= 0 && intValue < SMALL_INTEGERS.length) {
+        out.jsonValue(SMALL_INTEGERS[intValue]);
+      } else {
+        out.value(intValue);
+      }
+    } else {
+      out.value(value);
+    }
+  }
+}
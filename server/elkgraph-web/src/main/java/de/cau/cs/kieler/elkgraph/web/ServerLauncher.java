@@ -10,7 +10,6 @@
 package de.cau.cs.kieler.elkgraph.web;
 
 import com.google.inject.Binder;
-import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.apache.commons.cli.*;
 import org.eclipse.jetty.server.Server;
@@ -33,6 +32,9 @@ import javax.websocket.Endpoint;
 import javax.websocket.server.ServerEndpointConfig;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main class for launching the ELK Graph server.
@@ -48,7 +50,17 @@ public class ServerLauncher {
 
   public static void main(final String[] args) {
     final ElkGraphLanguageServerSetup setup = new ElkGraphLanguageServerSetup();
-    setup.setupLanguages();
+    // The language setup and the loading of the layout versions to be warmed up are independent
+    // of each other, hence they are run in parallel
+    final ExecutorService startupExecutor = Executors.newCachedThreadPool();
+    try {
+      ElkLayoutVersionRegistry.getVersions();
+      CompletableFuture.allOf(
+              CompletableFuture.runAsync(setup::setupLanguages, startupExecutor),
+              ElkWarmUp.loadLayoutVersions(startupExecutor)).join();
+    } finally {
+      startupExecutor.shutdown();
+    }
     Options options = new Options();
     options.addOption("r", "root", true, "Root path of the server\'s content.");
     options.addOption("m", "mode", true, "Mode to start in (" + Mode.values().toString().join(", ") + ").");
@@ -70,19 +82,33 @@ public class ServerLauncher {
 
   private final ElkGraphLanguageServerSetup setup;
 
-  private Injector createDiagramServerInjector() {
-    final Injector injector = Guice.createInjector(this.setup.getLanguageServerModule());
-    this.setup.setupLanguageServer(injector);
-    return injector;
+  private SessionInjectorPool diagramServerInjectors;
+
+  private SessionInjectorPool languageServerInjectors;
+
+  private SessionInjectorPool createDiagramServerInjectors() {
+    return new SessionInjectorPool("/elkgraph", this.setup.getLanguageServerModule(),
+            this.setup::setupLanguageServer);
   }
 
-  private Injector createLanguageServerInjector() {
+  private SessionInjectorPool createLanguageServerInjectors() {
     ServerModule serverModule = new ServerModule();
-    return Guice.createInjector(
+    return new SessionInjectorPool("/elkgraphjson",
       Modules2.mixin(serverModule,
               (Binder it) -> it.bind(Endpoint.class).to(LanguageServerEndpoint.class),
               (Binder it) -> it.bind(IResourceServiceProvider.Registry.class).toProvider(IResourceServiceProvider.Registry.RegistryProvider.class),
-              (Binder it) -> it.bind(ILanguageServerShutdownAndExitHandler.class).to(ILanguageServerShutdownAndExitHandler.NullImpl.class)));
+              (Binder it) -> it.bind(ILanguageServerShutdownAndExitHandler.class).to(ILanguageServerShutdownAndExitHandler.NullImpl.class)),
+      (Injector it) -> { });
+  }
+
+  /**
+   * Create the endpoint of a new WebSocket session with its own injector.
+   */
+  private Endpoint createEndpoint(final SessionInjectorPool injectors, final String path) {
+    final long start = System.nanoTime();
+    final Endpoint endpoint = injectors.take().getInstance(Endpoint.class);
+    ElkMetrics.recordSessionSetup(path, System.nanoTime() - start);
+    return endpoint;
   }
 
   public void start() {
@@ -98,7 +124,12 @@ public class ServerLauncher {
       webAppContext.setInitParameter("org.eclipse.jetty.servlet.Default.useFileMappedBuffer", "false");
 
       server.setHandler(webAppContext);
+      this.diagramServerInjectors = this.createDiagramServerInjectors();
+      this.languageServerInjectors = this.createLanguageServerInjectors();
+      this.diagramServerInjectors.fill();
+      this.languageServerInjectors.fill();
       final ServerContainer container = WebSocketServerContainerInitializer.configureContext(webAppContext);
+      ThresholdPerMessageDeflateExtension.configure(container.getWebSocketServerFactory().getExtensionFactory());
 
       // Configure web socket to provide access to a diagram server for elkt
       final ServerEndpointConfig.Builder diagramServerEndpointConfigBuilder =
@@ -106,7 +137,7 @@ public class ServerLauncher {
       diagramServerEndpointConfigBuilder.configurator(new ServerEndpointConfig.Configurator() {
         @Override
         public <T extends Object> T getEndpointInstance(final Class<T> endpointClass) {
-          return (T) ServerLauncher.this.createDiagramServerInjector().getInstance(Endpoint.class);
+          return (T) ServerLauncher.this.createEndpoint(ServerLauncher.this.diagramServerInjectors, "/elkgraph");
         }
       });
       container.addEndpoint(diagramServerEndpointConfigBuilder.build());
@@ -125,7 +156,7 @@ public class ServerLauncher {
       languageServerEndpointConfigBuilder.configurator(new ServerEndpointConfig.Configurator() {
         @Override
         public <T> T getEndpointInstance(final Class<T> endpointClass) {
-          return (T) ServerLauncher.this.createLanguageServerInjector().getInstance(Endpoint.class);
+          return (T) ServerLauncher.this.createEndpoint(ServerLauncher.this.languageServerInjectors, "/elkgraphjson");
         }
       });
       container.addEndpoint(languageServerEndpointConfigBuilder.build());
@@ -137,8 +168,48 @@ public class ServerLauncher {
           ElkGraphConversions.handleRequest(req, resp);
         }
       }), "/conversion");
+      webAppContext.addServlet(new ServletHolder(new HttpServlet() {
+        @Override
+        protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+          ElkGraphBatchConversions.handleRequest(req, resp);
+        }
+      }), "/conversion/batch");
+
+      // Define endpoint for stateless layouts
+      webAppContext.addServlet(new ServletHolder(new HttpServlet() {
+        @Override
+        protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+          ElkGraphLayouts.handleRequest(req, resp);
+        }
+      }), "/layout");
+      webAppContext.addServlet(new ServletHolder(new HttpServlet() {
+        @Override
+        protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+          ElkGraphBatchLayouts.handleRequest(req, resp);
+        }
+      }), "/layout/batch");
+
+      // Readiness probe, e.g. for container health checks, that only succeeds once the server is warmed up
+      webAppContext.addServlet(new ServletHolder(new HttpServlet() {
+        @Override
+        protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+          final boolean ready = ElkWarmUp.isDone();
+          resp.setStatus(ready ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+          resp.setHeader("Content-Type", "text/plain");
+          resp.getWriter().append(ready ? "OK" : "Warming up");
+        }
+      }), "/ready");
+
+      // Metrics in the Prometheus text format
+      webAppContext.addServlet(new ServletHolder(new HttpServlet() {
+        @Override
+        protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+          ElkMetrics.handleRequest(req, resp);
+        }
+      }), "/metrics");
       try {
         server.start();
+        ElkWarmUp.start();
         final ServerLauncher.Mode mode = this.mode;
         if (mode != null) {
           switch (mode) {
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.spi.Elements;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provides a separate Guice injector for each WebSocket session, since the language server and the
+ * diagram server keep per-session state in singletons.
+ *
+ * <p>The bindings of the given module are recorded once and replayed for each injector, so the modules are
+ * not configured and overridden again for every session. They only bind classes and providers by class,
+ * hence no instances are shared between sessions. A few injectors are created and set up ahead of time on a
+ * background thread, such that connecting does not have to wait for it, and the pool is refilled after each
+ * connection. The pool size is given by the system property {@code sessionInjectorPoolSize} (default 2,
+ * 0 creates the injectors on connection).</p>
+ */
+final class SessionInjectorPool {
+  private static final Logger LOG = Logger.getLogger(SessionInjectorPool.class.getName());
+
+  private static final int SIZE = Math.max(0, Integer.getInteger("sessionInjectorPoolSize", 2));
+
+  /** Shared by all pools, creating one injector at a time keeps bursts of connections from taking all cores. */
+  private static final ExecutorService creator = Executors.newSingleThreadExecutor((runnable) -> {
+    final Thread thread = new Thread(runnable, "elk-session-injectors");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final String name;
+
+  private final Module module;
+
+  private final Consumer<Injector> setup;
+
+  private final BlockingQueue<Injector> ready = new ArrayBlockingQueue<>(Math.max(1, SIZE));
+
+  /** Number of injectors that are ready or being created. */
+  private final AtomicInteger available = new AtomicInteger();
+
+  /**
+   * @param setup called on each new injector before it is handed out.
+   */
+  SessionInjectorPool(final String name, final Module module, final Consumer<Injector> setup) {
+    this.name = name;
+    this.module = Elements.getModule(Elements.getElements(module));
+    this.setup = setup;
+  }
+
+  /**
+   * Start creating injectors in the background until the pool is full.
+   */
+  void fill() {
+    while (true) {
+      final int count = this.available.get();
+      if (count >= SIZE) {
+        return;
+      }
+      if (this.available.compareAndSet(count, count + 1)) {
+        SessionInjectorPool.creator.execute(this::createAhead);
+      }
+    }
+  }
+
+  /**
+   * @return an injector that has not been handed out before, taken from the pool if one is ready.
+   */
+  Injector take() {
+    Injector injector = this.ready.poll();
+    if (injector != null) {
+      this.available.decrementAndGet();
+    } else {
+      injector = this.create();
+    }
+    this.fill();
+    return injector;
+  }
+
+  private Injector create() {
+    final Injector injector = Guice.createInjector(this.module);
+    this.setup.accept(injector);
+    return injector;
+  }
+
+  private void createAhead() {
+    try {
+      this.ready.add(this.create());
+    } catch (RuntimeException e) {
+      // Sessions create their own injector instead, failing there if the error persists
+      this.available.decrementAndGet();
+      SessionInjectorPool.LOG.log(Level.WARNING, "Failed to create an injector for " + this.name + ".", e);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.websocket.Session;
+import org.eclipse.lsp4j.jsonrpc.Endpoint;
+import org.eclipse.lsp4j.jsonrpc.JsonRpcException;
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.RemoteEndpoint;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.messages.Message;
+import org.eclipse.lsp4j.jsonrpc.messages.NotificationMessage;
+import org.eclipse.lsp4j.jsonrpc.services.ServiceEndpoints;
+import org.eclipse.lsp4j.websocket.WebSocketLauncherBuilder;
+
+/**
+ * Launcher builder whose outgoing messages are serialized straight into the WebSocket instead of being
+ * rendered into a String first, which for large diagrams doubles the peak memory and delays the first
+ * byte sent until the complete message has been serialized.
+ *
+ * <p>If the system property {@code websocketBinaryFrames} is {@code true}, diagram actions are sent as
+ * binary messages containing UTF-8 encoded JSON, which spares the server the validation of text frames and
+ * the client the decoding of large text messages on its main thread.</p>
+ */
+public class StreamingWebSocketLauncherBuilder<T> extends WebSocketLauncherBuilder<T> {
+  @Override
+  protected RemoteEndpoint createRemoteEndpoint(final MessageJsonHandler jsonHandler) {
+    final MessageConsumer outgoingMessageStream = this.wrapMessageConsumer(
+            new StreamingWebSocketLauncherBuilder.MessageWriter(this.session, jsonHandler));
+    final Endpoint localEndpoint = ServiceEndpoints.toEndpoint(this.localServices);
+    final RemoteEndpoint remoteEndpoint;
+    if (this.exceptionHandler == null) {
+      remoteEndpoint = new RemoteEndpoint(outgoingMessageStream, localEndpoint);
+    } else {
+      remoteEndpoint = new RemoteEndpoint(outgoingMessageStream, localEndpoint, this.exceptionHandler);
+    }
+    jsonHandler.setMethodProvider(remoteEndpoint);
+    remoteEndpoint.setJsonHandler(jsonHandler);
+    return remoteEndpoint;
+  }
+
+  /**
+   * Writes each message as a single WebSocket message that is sent in fragments while it is serialized.
+   */
+  public static class MessageWriter implements MessageConsumer {
+    private static final Logger LOG = Logger.getLogger(MessageWriter.class.getName());
+
+    private static final boolean BINARY_FRAMES = Boolean.getBoolean("websocketBinaryFrames");
+
+    private final Session session;
+
+    private final MessageJsonHandler jsonHandler;
+
+    public MessageWriter(final Session session, final MessageJsonHandler jsonHandler) {
+      this.session = session;
+      this.jsonHandler = jsonHandler;
+    }
+
+    /**
+     * Messages are sent one at a time, blocking the sending thread while the client is busy receiving.
+     */
+    @Override
+    public synchronized void consume(final Message message) {
+      if (!this.session.isOpen()) {
+        MessageWriter.LOG.info("Ignoring message for closed session " + this.session.getId() + ".");
+        return;
+      }
+      try (Writer writer = new BufferedWriter(this.openWriter(message), 8192)) {
+        this.jsonHandler.serialize(message, writer);
+      } catch (IOException e) {
+        throw new JsonRpcException(e);
+      } catch (RuntimeException e) {
+        // The message has been sent partially, the client will fail to parse it
+        MessageWriter.LOG.log(Level.SEVERE, "Failed to serialize message.", e);
+        throw e;
+      }
+    }
+
+    private Writer openWriter(final Message message) throws IOException {
+      if (MessageWriter.BINARY_FRAMES && message instanceof NotificationMessage
+              && "diagram/accept".equals(((NotificationMessage) message).getMethod())) {
+        return new OutputStreamWriter(this.session.getBasicRemote().getSendStream(), StandardCharsets.UTF_8);
+      }
+      return this.session.getBasicRemote().getSendWriter();
+    }
+  }
+}
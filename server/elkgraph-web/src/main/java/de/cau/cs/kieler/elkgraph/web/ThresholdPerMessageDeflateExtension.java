@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2025 Kiel University and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package de.cau.cs.kieler.elkgraph.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.common.OpCode;
+import org.eclipse.jetty.websocket.common.extensions.compress.PerMessageDeflateExtension;
+
+/**
+ * The {@code permessage-deflate} WebSocket extension, which only compresses messages of at least
+ * {@code websocketCompressionThreshold} bytes (system property, default 256). Smaller messages are sent
+ * uncompressed, which RFC 7692 permits, since compressing them costs more time than it saves. Setting the
+ * system property {@code websocketCompression} to {@code false} disables the negotiation of compression
+ * altogether.
+ *
+ * <p>The compression ratio and the time spent compressing are collected across all sessions.</p>
+ */
+public class ThresholdPerMessageDeflateExtension extends PerMessageDeflateExtension {
+  private static final Logger LOG = Logger.getLogger(ThresholdPerMessageDeflateExtension.class.getName());
+
+  private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("websocketCompression", "true"));
+
+  private static final int THRESHOLD = Math.max(0, Integer.getInteger("websocketCompressionThreshold", 256));
+
+  private static final AtomicLong compressedMessages = new AtomicLong();
+
+  private static final AtomicLong uncompressedMessages = new AtomicLong();
+
+  private static final AtomicLong bytesBeforeCompression = new AtomicLong();
+
+  private static final AtomicLong bytesAfterCompression = new AtomicLong();
+
+  private static final AtomicLong compressionNanos = new AtomicLong();
+
+  /** Frames handed to the compressor whose write has not completed yet. */
+  private final AtomicInteger pendingFrames = new AtomicInteger();
+
+  /** The time at which the compressor has been given work, i.e. a frame or the completion of a write. */
+  private volatile long resumed;
+
+  private long sessionBytesBefore = 0;
+
+  private long sessionBytesAfter = 0;
+
+  /**
+   * Replace the default {@code permessage-deflate} implementation of the given factory, or remove all
+   * compression extensions if compression is disabled.
+   */
+  public static void configure(final ExtensionFactory extensionFactory) {
+    if (ENABLED) {
+      extensionFactory.register("permessage-deflate", ThresholdPerMessageDeflateExtension.class);
+      ThresholdPerMessageDeflateExtension.LOG.info("WebSocket messages of at least " + THRESHOLD
+              + " bytes are compressed if the client supports it.");
+    } else {
+      extensionFactory.unregister("permessage-deflate");
+      extensionFactory.unregister("deflate-frame");
+      extensionFactory.unregister("x-webkit-deflate-frame");
+      ThresholdPerMessageDeflateExtension.LOG.info("WebSocket compression is disabled.");
+    }
+  }
+
+  @Override
+  public void outgoingFrame(final Frame frame, final WriteCallback callback, final BatchMode batchMode) {
+    final boolean messageStart = frame.getOpCode() == OpCode.TEXT || frame.getOpCode() == OpCode.BINARY;
+    // Frames must not overtake frames that are still queued in the compressor
+    if (messageStart && frame.isFin() && frame.getPayloadLength() < THRESHOLD && this.pendingFrames.get() == 0) {
+      uncompressedMessages.incrementAndGet();
+      this.getNextOutgoing().outgoingFrame(frame, callback, batchMode);
+      return;
+    }
+    if (messageStart) {
+      compressedMessages.incrementAndGet();
+    }
+    if (OpCode.isDataFrame(frame.getOpCode())) {
+      bytesBeforeCompression.addAndGet(frame.getPayloadLength());
+      this.sessionBytesBefore += frame.getPayloadLength();
+    }
+    this.pendingFrames.incrementAndGet();
+    this.resumed = System.nanoTime();
+    super.outgoingFrame(frame, new WriteCallback() {
+      @Override
+      public void writeSuccess() {
+        ThresholdPerMessageDeflateExtension.this.pendingFrames.decrementAndGet();
+        if (callback != null) {
+          callback.writeSuccess();
+        }
+      }
+
+      @Override
+      public void writeFailed(final Throwable cause) {
+        ThresholdPerMessageDeflateExtension.this.pendingFrames.decrementAndGet();
+        if (callback != null) {
+          callback.writeFailed(cause);
+        }
+      }
+    }, batchMode);
+  }
+
+  /**
+   * Called by the compressor for each compressed frame. Once the frame is written, the compressor continues
+   * with the remaining input.
+   */
+  @Override
+  protected void nextOutgoingFrame(final Frame frame, final WriteCallback callback, final BatchMode batchMode) {
+    compressionNanos.addAndGet(System.nanoTime() - this.resumed);
+    if (OpCode.isDataFrame(frame.getOpCode())) {
+      bytesAfterCompression.addAndGet(frame.getPayloadLength());
+      this.sessionBytesAfter += frame.getPayloadLength();
+    }
+    super.nextOutgoingFrame(frame, new WriteCallback() {
+      @Override
+      public void writeSuccess() {
+        ThresholdPerMessageDeflateExtension.this.resumed = System.nanoTime();
+        if (callback != null) {
+          callback.writeSuccess();
+        }
+      }
+
+      @Override
+      public void writeFailed(final Throwable cause) {
+        if (callback != null) {
+          callback.writeFailed(cause);
+        }
+      }
+    }, batchMode);
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (this.sessionBytesBefore > 0 && ThresholdPerMessageDeflateExtension.LOG.isLoggable(Level.FINE)) {
+      ThresholdPerMessageDeflateExtension.LOG.fine("WebSocket session compressed " + this.sessionBytesBefore
+              + " bytes to " + this.sessionBytesAfter + " bytes.");
+    }
+    super.doStop();
+  }
+
+  public static long getCompressedMessages() {
+    return compressedMessages.get();
+  }
+
+  /**
+   * @return the number of messages that were sent uncompressed because they were below the threshold.
+   */
+  public static long getUncompressedMessages() {
+    return uncompressedMessages.get();
+  }
+
+  public static long getBytesBeforeCompression() {
+    return bytesBeforeCompression.get();
+  }
+
+  public static long getBytesAfterCompression() {
+    return bytesAfterCompression.get();
+  }
+
+  /**
+   * @return the compressed size relative to the uncompressed size of all compressed messages, or 1 if no
+   *         message has been compressed yet.
+   */
+  public static double getCompressionRatio() {
+    final long before = bytesBeforeCompression.get();
+    return before == 0 ? 1 : (double) bytesAfterCompression.get() / before;
+  }
+
+  public static long getCompressionNanos() {
+    return compressionNanos.get();
+  }
+}